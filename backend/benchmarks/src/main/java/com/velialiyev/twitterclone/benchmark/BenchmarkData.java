@@ -0,0 +1,103 @@
+package com.velialiyev.twitterclone.benchmark;
+
+import com.velialiyev.twitterclone.entity.*;
+import com.velialiyev.twitterclone.repository.LikeRepository;
+import com.velialiyev.twitterclone.repository.RetweetRepository;
+import com.velialiyev.twitterclone.repository.TweetRepository;
+import com.velialiyev.twitterclone.repository.UserRepository;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Deterministic benchmark dataset. Every user posts {@code tweetsPerUser} tweets, of which every fifth quotes and
+ * every tenth replies to an earlier tweet, likes {@value #LIKES_PER_USER} tweets and retweets
+ * {@value #RETWEETS_PER_USER}. Counters match the rows.
+ */
+public final class BenchmarkData {
+
+    public static final String PASSWORD = "password";
+    static final int LIKES_PER_USER = 10;
+    static final int RETWEETS_PER_USER = 2;
+
+    private BenchmarkData() {
+    }
+
+    public static String username(int user) {
+        return "user" + user;
+    }
+
+    public static void seed(ApplicationContext context, int users, int tweetsPerUser) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        TweetRepository tweetRepository = context.getBean(TweetRepository.class);
+        LikeRepository likeRepository = context.getBean(LikeRepository.class);
+        RetweetRepository retweetRepository = context.getBean(RetweetRepository.class);
+        // BCrypt is deliberately slow, so every user shares one hash
+        String password = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        Random random = new Random(42);
+
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            List<UserEntity> userEntities = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                userEntities.add(UserEntity.builder()
+                        .firstName("First" + i)
+                        .lastName("Last" + i)
+                        .username(username(i))
+                        .email(username(i) + "@example.com")
+                        .password(password)
+                        .build());
+            }
+            userRepository.saveAll(userEntities);
+
+            List<TweetEntity> tweets = new ArrayList<>();
+            Instant createdDate = Instant.now().minusSeconds((long) users * tweetsPerUser);
+            for (UserEntity user : userEntities) {
+                for (int t = 0; t < tweetsPerUser; t++) {
+                    TweetEntity parent = t % 5 == 0 && !tweets.isEmpty() ? tweets.get(random.nextInt(tweets.size())) : null;
+                    TweetType type = parent == null ? TweetType.TWEET : t % 10 == 0 ? TweetType.REPLY : TweetType.QUOTE;
+                    if (type == TweetType.REPLY) {
+                        parent.setReplyCounter(parent.getReplyCounter() + 1);
+                    }
+                    tweets.add(TweetEntity.builder()
+                            .user(user)
+                            .text("Tweet " + t + " by " + user.getUsername())
+                            .type(type)
+                            .tweet(parent)
+                            .replyCounter(0)
+                            .retweetCounter(0)
+                            .likeCounter(0)
+                            .createdDate(createdDate = createdDate.plusSeconds(1))
+                            .build());
+                }
+            }
+
+            List<LikeEntity> likes = new ArrayList<>();
+            List<RetweetEntity> retweets = new ArrayList<>();
+            for (UserEntity user : userEntities) {
+                for (TweetEntity tweet : pick(tweets, LIKES_PER_USER, random)) {
+                    tweet.setLikeCounter(tweet.getLikeCounter() + 1);
+                    likes.add(LikeEntity.builder().user(user).tweet(tweet).build());
+                }
+                for (TweetEntity tweet : pick(tweets, RETWEETS_PER_USER, random)) {
+                    tweet.setRetweetCounter(tweet.getRetweetCounter() + 1);
+                    retweets.add(RetweetEntity.builder().user(user).tweet(tweet).build());
+                }
+            }
+            tweetRepository.saveAll(tweets);
+            likeRepository.saveAll(likes);
+            retweetRepository.saveAll(retweets);
+        });
+    }
+
+    private static Collection<TweetEntity> pick(List<TweetEntity> tweets, int count, Random random) {
+        Set<TweetEntity> picked = new LinkedHashSet<>();
+        while (picked.size() < Math.min(count, tweets.size())) {
+            picked.add(tweets.get(random.nextInt(tweets.size())));
+        }
+        return picked;
+    }
+}
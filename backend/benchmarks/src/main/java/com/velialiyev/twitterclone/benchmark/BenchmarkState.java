@@ -0,0 +1,39 @@
+package com.velialiyev.twitterclone.benchmark;
+
+import com.velialiyev.twitterclone.TwitterCloneApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application started against an embedded H2 database seeded with {@link BenchmarkData}, shared by all
+ * benchmarks of a fork.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    @Param("100")
+    public int users;
+
+    @Param("20")
+    public int tweetsPerUser;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        this.context = new SpringApplicationBuilder(TwitterCloneApplication.class)
+                .profiles("benchmark")
+                .run();
+        BenchmarkData.seed(this.context, this.users, this.tweetsPerUser);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        this.context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return this.context.getBean(type);
+    }
+}
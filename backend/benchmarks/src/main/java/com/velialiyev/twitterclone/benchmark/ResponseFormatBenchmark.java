@@ -0,0 +1,92 @@
+package com.velialiyev.twitterclone.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.dto.UserDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding and decoding of a representative timeline page in each negotiable response format. The payload size, raw
+ * and gzipped, is printed once per format at setup. No application context is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private List<TweetResponseDto> page;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.mapper = switch (this.format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new ObjectMapper();
+        };
+        this.page = timelinePage(50);
+        this.payload = this.mapper.writeValueAsBytes(this.page);
+        System.out.printf("%s: %d bytes, %d gzipped%n", this.format, this.payload.length, gzip(this.payload).length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return this.mapper.writeValueAsBytes(this.page);
+    }
+
+    @Benchmark
+    public TweetResponseDto[] decode() throws IOException {
+        return this.mapper.readValue(this.payload, TweetResponseDto[].class);
+    }
+
+    // a few prolific authors, some retweets and quotes, as on a real timeline
+    private static List<TweetResponseDto> timelinePage(int size) {
+        List<TweetResponseDto> page = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int author = i % 5;
+            TweetResponseDto tweet = TweetResponseDto.builder()
+                    .id((long) i)
+                    .userId((long) author)
+                    .firstName("First" + author)
+                    .lastName("Last" + author)
+                    .username("user" + author)
+                    .tweetText("Tweet number " + i + " with a realistic amount of text to go along with it, #hashtag")
+                    .replyCounter(i * 3)
+                    .retweetCounter(i * 7)
+                    .likeCounter(i * 31)
+                    .build();
+            if (i % 4 == 0) {
+                tweet.setRetweetedBy(UserDto.builder().id(9L).firstName("Retweeter").lastName("Last").username("retweeter").build());
+            }
+            if (i % 6 == 0 && i > 0) {
+                tweet.setQuote(page.get(i - 1));
+            }
+            page.add(tweet);
+        }
+        return page;
+    }
+
+    private static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(payload);
+        }
+        return bytes.toByteArray();
+    }
+}
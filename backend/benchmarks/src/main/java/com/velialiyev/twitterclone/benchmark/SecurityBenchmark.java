@@ -0,0 +1,51 @@
+package com.velialiyev.twitterclone.benchmark;
+
+import com.velialiyev.twitterclone.service.JwtService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token signing and verification on every authenticated request, and password verification on sign-in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityBenchmark {
+
+    private JwtService jwtService;
+    private JwtDecoder jwtDecoder;
+    private PasswordEncoder passwordEncoder;
+    private String token;
+    private String passwordHash;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        this.jwtService = state.bean(JwtService.class);
+        this.jwtDecoder = state.bean(JwtDecoder.class);
+        this.passwordEncoder = state.bean(PasswordEncoder.class);
+        this.token = this.jwtService.generateTokenWithUsername(BenchmarkData.username(0));
+        this.passwordHash = this.passwordEncoder.encode(BenchmarkData.PASSWORD);
+    }
+
+    @Benchmark
+    public String generateTokenWithUsername() {
+        return this.jwtService.generateTokenWithUsername(BenchmarkData.username(0));
+    }
+
+    @Benchmark
+    public Jwt decodeToken() {
+        return this.jwtDecoder.decode(this.token);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return this.passwordEncoder.matches(BenchmarkData.PASSWORD, this.passwordHash);
+    }
+}
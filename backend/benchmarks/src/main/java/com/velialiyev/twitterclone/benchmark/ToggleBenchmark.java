@@ -0,0 +1,56 @@
+package com.velialiyev.twitterclone.benchmark;
+
+import com.velialiyev.twitterclone.dto.LikeRetweetBookmarkDto;
+import com.velialiyev.twitterclone.entity.TweetType;
+import com.velialiyev.twitterclone.repository.TweetRepository;
+import com.velialiyev.twitterclone.service.TweetService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Like and retweet toggles. Each invocation flips the state, so the results average adding and removing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToggleBenchmark {
+
+    private TweetService tweetService;
+    private LikeRetweetBookmarkDto request;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        this.tweetService = state.bean(TweetService.class);
+        Long tweetId = state.bean(TweetRepository.class).findAllByType(TweetType.TWEET).orElseThrow().get(0).getId();
+        this.request = LikeRetweetBookmarkDto.builder().tweetId(tweetId).build();
+
+        // setup runs on the benchmark thread, which the services read the current user from
+        Jwt jwt = Jwt.withTokenValue("benchmark")
+                .header("alg", "none")
+                .subject(BenchmarkData.username(0))
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void likeToggle() {
+        this.tweetService.like(this.request);
+    }
+
+    @Benchmark
+    public void retweetToggle() {
+        this.tweetService.retweet(this.request);
+    }
+}
@@ -0,0 +1,436 @@
+package com.velialiyev.twitterclone.dataset;
+
+import com.velialiyev.twitterclone.entity.TweetType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills an empty schema with users, tweets, likes, retweets and bookmarks using batched multi-row inserts.
+ * <p>
+ * Authors and liked, retweeted, bookmarked, replied and quoted tweets are picked by Zipfian popularity, and the
+ * number of interactions per user follows a power law, so a few accounts and tweets get most of the traffic. Every
+ * chunk of rows draws from its own random stream derived from the seed, which makes the dataset identical for a
+ * given seed whatever the parallelism. Counters are computed in a first pass over the same streams so that
+ * {@code reply_counter}, {@code retweet_counter} and {@code like_counter} match the rows that are written.
+ */
+public class DatasetGenerator {
+
+    public static final String PASSWORD = "password";
+
+    private static final Instant END = Instant.parse("2025-01-01T00:00:00Z");
+    private static final long SCATTER_PRIME = 1_000_000_007L;
+    private static final double ACTIVITY_ALPHA = 1.5;
+    private static final String[] WORDS = ("the a of to and in is it for on with this that just new day time love good "
+            + "today what about people think know really great now here more like your my our all java spring code "
+            + "coffee music game news world city weekend morning night team release bug fix").split(" ");
+
+    private final DataSource dataSource;
+    private final DatasetOptions options;
+    private final ZipfSampler authors;
+    private final ZipfSampler popularTweets;
+    private final AtomicIntegerArray replyCounters;
+    private final AtomicIntegerArray retweetCounters;
+    private final AtomicIntegerArray likeCounters;
+    private final Map<String, AtomicLong> rows = new LinkedHashMap<>();
+    private boolean mysql;
+
+    public DatasetGenerator(DataSource dataSource, DatasetOptions options) {
+        this.dataSource = dataSource;
+        this.options = options;
+        this.authors = new ZipfSampler(options.users, options.authorExponent);
+        this.popularTweets = new ZipfSampler(options.tweets, options.tweetExponent);
+        this.replyCounters = new AtomicIntegerArray(options.tweets + 1);
+        this.retweetCounters = new AtomicIntegerArray(options.tweets + 1);
+        this.likeCounters = new AtomicIntegerArray(options.tweets + 1);
+        for (String table : new String[]{"user_entity", "tweet_entity", "like_entity", "retweet_entity", "bookmark_entity"}) {
+            this.rows.put(table, new AtomicLong());
+        }
+    }
+
+    /**
+     * Generates the dataset and returns the number of rows written per table.
+     */
+    public Map<String, Long> generate() throws SQLException, InterruptedException {
+        try (Connection connection = this.dataSource.getConnection()) {
+            this.mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            try (Statement statement = connection.createStatement();
+                 ResultSet existing = statement.executeQuery("SELECT COUNT(*) FROM user_entity")) {
+                existing.next();
+                if (existing.getLong(1) > 0) {
+                    throw new IllegalStateException("The dataset has to be generated into an empty schema");
+                }
+            }
+            if (!this.mysql) {
+                execute(connection, "SET REFERENTIAL_INTEGRITY FALSE");
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.options.parallelism);
+        try {
+            Map<Interaction, long[]> firstIds = this.countInteractions(executor);
+            this.writeRows(executor, firstIds);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (Connection connection = this.dataSource.getConnection()) {
+            for (Map.Entry<String, AtomicLong> table : this.rows.entrySet()) {
+                execute(connection, this.mysql
+                        ? "ALTER TABLE " + table.getKey() + " AUTO_INCREMENT = " + (table.getValue().get() + 1)
+                        : "ALTER TABLE " + table.getKey() + " ALTER COLUMN id RESTART WITH " + (table.getValue().get() + 1));
+            }
+            if (this.mysql) {
+                execute(connection, "ANALYZE TABLE " + String.join(", ", this.rows.keySet()));
+            } else {
+                execute(connection, "SET REFERENTIAL_INTEGRITY TRUE");
+                execute(connection, "ANALYZE");
+            }
+        }
+
+        Map<String, Long> written = new LinkedHashMap<>();
+        this.rows.forEach((table, count) -> written.put(table, count.get()));
+        return written;
+    }
+
+    // first pass: fills the counters and returns the first id of every interaction chunk
+    private Map<Interaction, long[]> countInteractions(ExecutorService executor) throws InterruptedException {
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < this.tweetChunks(); chunk++) {
+            int tweetChunk = chunk;
+            tasks.add(() -> {
+                this.tweets(tweetChunk, (id, userId, type, parent) -> {
+                    if (type == TweetType.REPLY) {
+                        this.replyCounters.incrementAndGet(parent);
+                    } else if (type == TweetType.QUOTE) {
+                        this.retweetCounters.incrementAndGet(parent);
+                    }
+                });
+                return null;
+            });
+        }
+        Map<Interaction, long[]> chunkSizes = new LinkedHashMap<>();
+        for (Interaction interaction : Interaction.values()) {
+            long[] sizes = new long[this.userChunks(interaction)];
+            chunkSizes.put(interaction, sizes);
+            for (int chunk = 0; chunk < sizes.length; chunk++) {
+                int userChunk = chunk;
+                tasks.add(() -> {
+                    this.interactions(interaction, userChunk, (userId, tweetId) -> {
+                        sizes[userChunk]++;
+                        if (interaction == Interaction.LIKE) {
+                            this.likeCounters.incrementAndGet(tweetId);
+                        } else if (interaction == Interaction.RETWEET) {
+                            this.retweetCounters.incrementAndGet(tweetId);
+                        }
+                    });
+                    return null;
+                });
+            }
+        }
+        invokeAll(executor, tasks);
+
+        for (long[] sizes : chunkSizes.values()) {
+            long next = 1;
+            for (int chunk = 0; chunk < sizes.length; chunk++) {
+                long size = sizes[chunk];
+                sizes[chunk] = next;
+                next += size;
+            }
+        }
+        return chunkSizes;
+    }
+
+    // second pass: replays the same random streams and writes the rows
+    private void writeRows(ExecutorService executor, Map<Interaction, long[]> firstIds) throws InterruptedException {
+        String passwordHash = new BCryptPasswordEncoder().encode(PASSWORD);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int from = 1; from <= this.options.users; from += this.options.chunkRows) {
+            int first = from;
+            int last = (int) Math.min(this.options.users, (long) from + this.options.chunkRows - 1);
+            tasks.add(() -> {
+                try (Connection connection = this.connection();
+                     RowWriter writer = new RowWriter(connection, "user_entity",
+                             new String[]{"id", "first_name", "last_name", "username", "email", "password"})) {
+                    for (int id = first; id <= last; id++) {
+                        writer.add(id, "First" + id, "Last" + id, username(id), username(id) + "@example.com", passwordHash);
+                    }
+                }
+                return null;
+            });
+        }
+        for (int chunk = 0; chunk < this.tweetChunks(); chunk++) {
+            int tweetChunk = chunk;
+            tasks.add(() -> {
+                try (Connection connection = this.connection();
+                     RowWriter writer = new RowWriter(connection, "tweet_entity", new String[]{"id", "user_id", "text",
+                             "reply_counter", "retweet_counter", "like_counter", "tweet_id", "type", "created_date"})) {
+                    this.tweets(tweetChunk, (id, userId, type, parent) -> writer.add(id, userId, this.text(id),
+                            this.replyCounters.get(id), this.retweetCounters.get(id), this.likeCounters.get(id),
+                            parent == 0 ? null : (long) parent, type.ordinal(), this.createdDate(id)));
+                }
+                return null;
+            });
+        }
+        firstIds.forEach((interaction, ids) -> {
+            for (int chunk = 0; chunk < ids.length; chunk++) {
+                int userChunk = chunk;
+                tasks.add(() -> {
+                    long[] id = {ids[userChunk]};
+                    try (Connection connection = this.connection();
+                         RowWriter writer = new RowWriter(connection, interaction.table, new String[]{"id", "user_id", "tweet_id"})) {
+                        this.interactions(interaction, userChunk, (userId, tweetId) -> writer.add(id[0]++, userId, tweetId));
+                    }
+                    return null;
+                });
+            }
+        });
+        invokeAll(executor, tasks);
+    }
+
+    private void tweets(int chunk, TweetSink sink) throws SQLException {
+        SplittableRandom random = this.random(0, chunk);
+        int from = chunk * this.options.chunkRows + 1;
+        int to = (int) Math.min(this.options.tweets, (long) from + this.options.chunkRows - 1);
+        for (int id = from; id <= to; id++) {
+            int userId = scatter(this.authors.sample(random), this.options.users);
+            double roll = random.nextDouble();
+            TweetType type = id == 1 ? TweetType.TWEET
+                    : roll < this.options.replyRatio ? TweetType.REPLY
+                    : roll < this.options.replyRatio + this.options.quoteRatio ? TweetType.QUOTE
+                    : TweetType.TWEET;
+            int parent = 0;
+            if (type != TweetType.TWEET) {
+                // a popular tweet, folded back onto the ones posted before this one
+                parent = scatter(this.popularTweets.sample(random), this.options.tweets);
+                if (parent >= id) {
+                    parent = 1 + (parent - 1) % (id - 1);
+                }
+            }
+            sink.accept(id, userId, type, parent);
+        }
+    }
+
+    private void interactions(Interaction interaction, int chunk, InteractionSink sink) throws SQLException {
+        SplittableRandom random = this.random(interaction.ordinal() + 1, chunk);
+        double mean = this.options.tweets * interaction.perTweet(this.options) / this.options.users;
+        int cap = this.options.tweets / 2;
+        int size = this.userChunkSize(interaction);
+        int from = chunk * size + 1;
+        int to = (int) Math.min(this.options.users, (long) from + size - 1);
+        for (int userId = from; userId <= to; userId++) {
+            // Pareto distributed activity with the requested mean
+            double activity = mean * (ACTIVITY_ALPHA - 1) / ACTIVITY_ALPHA / Math.pow(1 - random.nextDouble(), 1 / ACTIVITY_ALPHA);
+            int count = (int) activity;
+            if (random.nextDouble() < activity - count) {
+                count++;
+            }
+            count = Math.min(count, cap);
+            // a new set per user, clearing one that grew for a heavy user costs its whole capacity every time
+            Set<Integer> picked = new HashSet<>();
+            for (int attempt = 0; picked.size() < count; attempt++) {
+                int tweetId = attempt < 4 * count
+                        ? scatter(this.popularTweets.sample(random), this.options.tweets)
+                        : 1 + random.nextInt(this.options.tweets);
+                if (picked.add(tweetId)) {
+                    sink.accept(userId, tweetId);
+                }
+            }
+        }
+    }
+
+    private int tweetChunks() {
+        return (this.options.tweets + this.options.chunkRows - 1) / this.options.chunkRows;
+    }
+
+    private int userChunks(Interaction interaction) {
+        int size = this.userChunkSize(interaction);
+        return (this.options.users + size - 1) / size;
+    }
+
+    // about chunk-rows interactions per chunk
+    private int userChunkSize(Interaction interaction) {
+        double perUser = this.options.tweets * interaction.perTweet(this.options) / this.options.users;
+        return (int) Math.min(this.options.users, Math.max(1, this.options.chunkRows / Math.max(perUser, 1)));
+    }
+
+    private SplittableRandom random(int stream, int chunk) {
+        return new SplittableRandom(mix(mix(this.options.seed + stream) + chunk));
+    }
+
+    private String text(int id) {
+        SplittableRandom random = new SplittableRandom(mix(this.options.seed ^ mix(id)));
+        StringBuilder text = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        for (int words = 2 + random.nextInt(24); words > 0; words--) {
+            text.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    // evenly spread over the span, in id order
+    private Timestamp createdDate(int id) {
+        long offset = this.options.span.toMillis() * (this.options.tweets - id) / this.options.tweets;
+        return Timestamp.from(END.minusMillis(offset));
+    }
+
+    private Connection connection() throws SQLException {
+        Connection connection = this.dataSource.getConnection();
+        connection.setAutoCommit(false);
+        if (this.mysql) {
+            execute(connection, "SET foreign_key_checks = 0, unique_checks = 0");
+        }
+        return connection;
+    }
+
+    public static String username(int id) {
+        return "user" + id;
+    }
+
+    // maps popularity rank 1..n onto a fixed permutation of 1..n, so that the most popular ids are spread out
+    static int scatter(int rank, int n) {
+        long multiplier = n % SCATTER_PRIME == 0 ? 1 : SCATTER_PRIME;
+        return (int) ((rank - 1) * multiplier % n) + 1;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Object>> tasks) throws InterruptedException {
+        for (Future<Object> result : executor.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Generating the dataset failed", e.getCause());
+            }
+        }
+    }
+
+    private enum Interaction {
+        LIKE("like_entity"),
+        RETWEET("retweet_entity"),
+        BOOKMARK("bookmark_entity");
+
+        private final String table;
+
+        Interaction(String table) {
+            this.table = table;
+        }
+
+        double perTweet(DatasetOptions options) {
+            switch (this) {
+                case LIKE:
+                    return options.likesPerTweet;
+                case RETWEET:
+                    return options.retweetsPerTweet;
+                default:
+                    return options.bookmarksPerTweet;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface TweetSink {
+        void accept(int id, int userId, TweetType type, int parent) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface InteractionSink {
+        void accept(int userId, int tweetId) throws SQLException;
+    }
+
+    /**
+     * Buffers rows and sends them as {@code INSERT ... VALUES (...), (...)} statements of batch-rows rows, committing
+     * once when closed.
+     */
+    private final class RowWriter implements AutoCloseable {
+
+        private final Connection connection;
+        private final String table;
+        private final String[] columns;
+        private final Object[] buffer;
+        private final PreparedStatement fullBatch;
+        private int buffered;
+
+        RowWriter(Connection connection, String table, String[] columns) throws SQLException {
+            this.connection = connection;
+            this.table = table;
+            this.columns = columns;
+            this.buffer = new Object[columns.length * DatasetGenerator.this.options.batchRows];
+            this.fullBatch = connection.prepareStatement(this.insert(DatasetGenerator.this.options.batchRows));
+        }
+
+        void add(Object... values) throws SQLException {
+            System.arraycopy(values, 0, this.buffer, this.buffered * this.columns.length, this.columns.length);
+            if (++this.buffered == DatasetGenerator.this.options.batchRows) {
+                this.flush(this.fullBatch);
+            }
+        }
+
+        private void flush(PreparedStatement statement) throws SQLException {
+            for (int i = 0; i < this.buffered * this.columns.length; i++) {
+                if (this.buffer[i] == null) {
+                    statement.setNull(i + 1, Types.BIGINT);
+                } else {
+                    statement.setObject(i + 1, this.buffer[i]);
+                }
+            }
+            statement.executeUpdate();
+            DatasetGenerator.this.rows.get(this.table).addAndGet(this.buffered);
+            this.buffered = 0;
+        }
+
+        private String insert(int rowCount) {
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(this.table)
+                    .append(" (").append(String.join(", ", this.columns)).append(") VALUES ");
+            String row = "(?" + ", ?".repeat(this.columns.length - 1) + ")";
+            for (int i = 0; i < rowCount; i++) {
+                sql.append(i == 0 ? "" : ", ").append(row);
+            }
+            return sql.toString();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (PreparedStatement fullBatch = this.fullBatch) {
+                if (this.buffered > 0) {
+                    try (PreparedStatement lastBatch = this.connection.prepareStatement(this.insert(this.buffered))) {
+                        this.flush(lastBatch);
+                    }
+                }
+                this.connection.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.velialiyev.twitterclone.dataset;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dataset generator settings, given as {@code key=value} arguments. Unknown keys are rejected so that typos do not
+ * silently fall back to defaults.
+ */
+public class DatasetOptions {
+
+    final String url;
+    final String username;
+    final String password;
+    final boolean createSchema;
+    final long seed;
+    final int users;
+    final int tweets;
+    final double authorExponent;
+    final double tweetExponent;
+    final double replyRatio;
+    final double quoteRatio;
+    final double likesPerTweet;
+    final double retweetsPerTweet;
+    final double bookmarksPerTweet;
+    final Duration span;
+    final int parallelism;
+    final int batchRows;
+    final int chunkRows;
+
+    DatasetOptions(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        values.put("url", "jdbc:h2:file:./target/dataset/twitter");
+        values.put("username", "sa");
+        values.put("password", "");
+        values.put("create-schema", "true");
+        values.put("seed", "42");
+        values.put("users", "100000");
+        values.put("tweets", "1000000");
+        values.put("author-exponent", "1.1");
+        values.put("tweet-exponent", "1.2");
+        values.put("reply-ratio", "0.25");
+        values.put("quote-ratio", "0.05");
+        values.put("likes-per-tweet", "4");
+        values.put("retweets-per-tweet", "0.5");
+        values.put("bookmarks-per-tweet", "0.2");
+        values.put("span", "P365D");
+        values.put("parallelism", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        values.put("batch-rows", "500");
+        values.put("chunk-rows", "50000");
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !values.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Expected one of " + new TreeMap<>(values).keySet() + " as key=value but got " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        this.url = values.get("url");
+        this.username = values.get("username");
+        this.password = values.get("password");
+        this.createSchema = Boolean.parseBoolean(values.get("create-schema"));
+        this.seed = Long.parseLong(values.get("seed"));
+        this.users = Integer.parseInt(values.get("users"));
+        this.tweets = Integer.parseInt(values.get("tweets"));
+        this.authorExponent = Double.parseDouble(values.get("author-exponent"));
+        this.tweetExponent = Double.parseDouble(values.get("tweet-exponent"));
+        this.replyRatio = Double.parseDouble(values.get("reply-ratio"));
+        this.quoteRatio = Double.parseDouble(values.get("quote-ratio"));
+        this.likesPerTweet = Double.parseDouble(values.get("likes-per-tweet"));
+        this.retweetsPerTweet = Double.parseDouble(values.get("retweets-per-tweet"));
+        this.bookmarksPerTweet = Double.parseDouble(values.get("bookmarks-per-tweet"));
+        this.span = Duration.parse(values.get("span"));
+        this.parallelism = Integer.parseInt(values.get("parallelism"));
+        this.batchRows = Integer.parseInt(values.get("batch-rows"));
+        this.chunkRows = Integer.parseInt(values.get("chunk-rows"));
+        if (this.users < 1 || this.tweets < 1 || this.replyRatio + this.quoteRatio > 1) {
+            throw new IllegalArgumentException("Expected at least one user and tweet, and reply-ratio + quote-ratio <= 1");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "url=" + this.url + " seed=" + this.seed + " users=" + this.users + " tweets=" + this.tweets
+                + " author-exponent=" + this.authorExponent + " tweet-exponent=" + this.tweetExponent
+                + " reply-ratio=" + this.replyRatio + " quote-ratio=" + this.quoteRatio
+                + " likes-per-tweet=" + this.likesPerTweet + " retweets-per-tweet=" + this.retweetsPerTweet
+                + " bookmarks-per-tweet=" + this.bookmarksPerTweet + " span=" + this.span
+                + " parallelism=" + this.parallelism + " batch-rows=" + this.batchRows + " chunk-rows=" + this.chunkRows;
+    }
+}
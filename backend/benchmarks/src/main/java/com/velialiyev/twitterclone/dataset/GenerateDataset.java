@@ -0,0 +1,48 @@
+package com.velialiyev.twitterclone.dataset;
+
+import com.velialiyev.twitterclone.TwitterCloneApplication;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+
+/**
+ * Generates a synthetic dataset into H2 or MySQL, see {@link DatasetGenerator}. The schema is migrated by starting the
+ * application once against the database unless {@code create-schema=false}.
+ * <p>
+ * Options are {@code key=value} arguments, see {@link DatasetOptions}; for example
+ * {@code url=jdbc:mysql://localhost:3306/twitter username=root password=secret users=1000000 tweets=10000000}.
+ */
+public class GenerateDataset {
+
+    public static void main(String[] args) throws Exception {
+        DatasetOptions options = new DatasetOptions(args);
+        System.out.println("Generating dataset: " + options);
+
+        if (options.createSchema) {
+            // the benchmark profile switches to the H2 driver and dialect, the default properties are for MySQL
+            new SpringApplicationBuilder(TwitterCloneApplication.class)
+                    .profiles(options.url.startsWith("jdbc:h2:") ? new String[]{"benchmark"} : new String[0])
+                    .run("--spring.datasource.url=" + options.url,
+                            "--spring.datasource.username=" + options.username,
+                            "--spring.datasource.password=" + options.password,
+                            "--server.port=0")
+                    .close();
+        }
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(options.url);
+            dataSource.setUsername(options.username);
+            dataSource.setPassword(options.password);
+            dataSource.setMaximumPoolSize(options.parallelism + 1);
+
+            long start = System.nanoTime();
+            Map<String, Long> rows = new DatasetGenerator(dataSource, options).generate();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long total = rows.values().stream().mapToLong(Long::longValue).sum();
+            rows.forEach((table, count) -> System.out.printf("%-16s %,14d rows%n", table, count));
+            System.out.printf("%,d rows in %.1f s (%,.0f rows/s)%n", total, seconds, total / seconds);
+        }
+    }
+}
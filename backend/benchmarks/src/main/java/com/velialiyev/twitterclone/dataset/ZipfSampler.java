@@ -0,0 +1,70 @@
+package com.velialiyev.twitterclone.dataset;
+
+import java.util.SplittableRandom;
+
+/**
+ * Samples ranks {@code 1..n} with probability proportional to {@code 1 / rank^exponent}, in constant time and without
+ * a table of the {@code n} weights, using the rejection-inversion method of Hörmann and Derflinger.
+ */
+class ZipfSampler {
+
+    private final int n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    ZipfSampler(int n, double exponent) {
+        if (n < 1 || exponent <= 0) {
+            throw new IllegalArgumentException("Expected n >= 1 and exponent > 0 but got n=" + n + " exponent=" + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = this.hIntegral(1.5) - 1;
+        this.hIntegralN = this.hIntegral(n + 0.5);
+        this.s = 2 - this.hIntegralInverse(this.hIntegral(2.5) - this.h(2));
+    }
+
+    int sample(SplittableRandom random) {
+        while (true) {
+            double u = this.hIntegralN + random.nextDouble() * (this.hIntegralX1 - this.hIntegralN);
+            double x = this.hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > this.n) {
+                k = this.n;
+            }
+            if (k - x <= this.s || u >= this.hIntegral(k + 0.5) - this.h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-this.exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - this.exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - this.exponent);
+        if (t < -1) {
+            t = -1;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x, accurate near zero
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x, accurate near zero
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
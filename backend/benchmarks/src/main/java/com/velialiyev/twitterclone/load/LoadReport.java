@@ -0,0 +1,100 @@
+package com.velialiyev.twitterclone.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-operation latency histograms in microseconds, and error counts. Latencies of failed requests are not recorded.
+ */
+public class LoadReport {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    public LoadReport() {
+        for (Operation operation : Operation.values()) {
+            this.latencies.put(operation, new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3));
+            this.errors.put(operation, new LongAdder());
+        }
+    }
+
+    public void record(Operation operation, long nanos, boolean success) {
+        if (success) {
+            this.latencies.get(operation).recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_LATENCY_MICROS));
+        } else {
+            this.errors.get(operation).increment();
+        }
+    }
+
+    public void print(PrintStream out, Duration measured) {
+        out.printf("%-44s %9s %7s %10s %10s %10s %10s %10s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map<String, Object> row : this.summary(measured)) {
+            out.printf("%-44s %9d %7d %10.1f %10.2f %10.2f %10.2f %10.2f%n", row.get("endpoint"), row.get("requests"),
+                    row.get("errors"), row.get("throughput"), row.get("p50Ms"), row.get("p99Ms"), row.get("p999Ms"), row.get("maxMs"));
+        }
+    }
+
+    /**
+     * Writes {@code summary.json} and one HdrHistogram percentile distribution ({@code .hgrm}, in milliseconds) per
+     * operation that received requests.
+     */
+    public void write(Path directory, LoadTestOptions options, Duration measured) throws IOException {
+        Files.createDirectories(directory);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("options", options.toString());
+        summary.put("measuredSeconds", measured.toMillis() / 1000.0);
+        summary.put("operations", this.summary(measured));
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(directory.resolve("summary.json").toFile(), summary);
+
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = this.latencies.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(operation.key() + ".hgrm")))) {
+                    histogram.outputPercentileDistribution(out, 1000.0);
+                }
+            }
+        }
+    }
+
+    private List<Map<String, Object>> summary(Duration measured) {
+        double seconds = Math.max(measured.toMillis(), 1) / 1000.0;
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = this.latencies.get(operation);
+            long errors = this.errors.get(operation).sum();
+            if (histogram.getTotalCount() + errors == 0) {
+                continue;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("operation", operation.key());
+            row.put("endpoint", operation.endpoint());
+            row.put("requests", histogram.getTotalCount() + errors);
+            row.put("errors", errors);
+            row.put("throughput", histogram.getTotalCount() / seconds);
+            row.put("meanMs", histogram.getMean() / 1000.0);
+            row.put("p50Ms", histogram.getValueAtPercentile(50) / 1000.0);
+            row.put("p99Ms", histogram.getValueAtPercentile(99) / 1000.0);
+            row.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+            row.put("maxMs", histogram.getMaxValue() / 1000.0);
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,112 @@
+package com.velialiyev.twitterclone.load;
+
+import com.velialiyev.twitterclone.TwitterCloneApplication;
+import com.velialiyev.twitterclone.benchmark.BenchmarkData;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.repository.TweetRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Starts the application on H2 with the benchmark dataset and drives it over HTTP with a number of virtual users,
+ * each signing in and then sending a weighted mix of requests. Prints per-endpoint throughput and latency
+ * percentiles, and writes them to {@code summary.json} and HdrHistogram {@code .hgrm} files.
+ * <p>
+ * Options are {@code key=value} arguments, see {@link LoadTestOptions}; for example
+ * {@code users=100 duration=PT2M mix=feed:50,like:10,tweet:5}.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions(args);
+        Path picture = writeDefaultPicture();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TwitterCloneApplication.class)
+                .profiles("benchmark")
+                .run("--media.default-profile-picture=" + picture)) {
+            BenchmarkData.seed(context, options.seedUsers, options.tweetsPerUser);
+            URI baseUri = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+            List<Long> tweetIds = context.getBean(TweetRepository.class).findAll().stream()
+                    .map(TweetEntity::getId)
+                    .collect(Collectors.toList());
+            List<String> usernames = IntStream.range(0, options.seedUsers)
+                    .mapToObj(BenchmarkData::username)
+                    .collect(Collectors.toList());
+
+            System.out.println("Load test against " + baseUri + ": " + options);
+            LoadReport report = run(options, baseUri, usernames, tweetIds);
+            report.print(System.out, options.duration);
+            report.write(options.output, options, options.duration);
+            System.out.println("Results written to " + options.output.toAbsolutePath());
+        } finally {
+            Files.deleteIfExists(picture);
+        }
+    }
+
+    private static LoadReport run(LoadTestOptions options, URI baseUri, List<String> usernames, List<Long> tweetIds) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Operation[] schedule = schedule(options.mix);
+        LoadReport report = new LoadReport();
+        long measureFrom = System.nanoTime() + options.warmup.toNanos();
+        long deadline = measureFrom + options.duration.toNanos();
+
+        ExecutorService virtualUsers = Executors.newFixedThreadPool(options.users);
+        for (int i = 0; i < options.users; i++) {
+            virtualUsers.execute(new VirtualUser(client, baseUri, usernames.get(i % usernames.size()), BenchmarkData.PASSWORD,
+                    usernames, tweetIds, schedule, report, measureFrom, deadline, options.thinkTime.toMillis(), i));
+        }
+        virtualUsers.shutdown();
+        if (!virtualUsers.awaitTermination(options.warmup.plus(options.duration).plusMinutes(1).toMillis(), TimeUnit.MILLISECONDS)) {
+            virtualUsers.shutdownNow();
+        }
+        return report;
+    }
+
+    // each operation appears as often as its weight, so a uniform pick follows the mix
+    private static Operation[] schedule(Map<Operation, Integer> mix) {
+        List<Operation> schedule = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                schedule.add(operation);
+            }
+        });
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operations with a positive weight");
+        }
+        return schedule.toArray(new Operation[0]);
+    }
+
+    // served to every user without a picture of their own, so picture fetches exercise the picture cache
+    private static Path writeDefaultPicture() throws IOException {
+        BufferedImage image = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.CYAN, 400, 400, Color.BLUE));
+        graphics.fillRect(0, 0, 400, 400);
+        graphics.dispose();
+        Path picture = Files.createTempFile("load-test-picture", ".jpg");
+        ImageIO.write(image, "jpg", picture.toFile());
+        return picture;
+    }
+}
@@ -0,0 +1,74 @@
+package com.velialiyev.twitterclone.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Load test settings, given as {@code key=value} arguments. Unknown keys are rejected so that typos do not silently
+ * fall back to defaults.
+ */
+public class LoadTestOptions {
+
+    static final String DEFAULT_MIX = "sign-in:2,feed:30,tweets-tab:10,retweets-tab:5,replies-tab:5,likes-tab:5,"
+            + "like:10,retweet:5,bookmark:5,tweet:8,picture:15";
+
+    final int users;
+    final Duration duration;
+    final Duration warmup;
+    final Duration thinkTime;
+    final Map<Operation, Integer> mix;
+    final Path output;
+    final int seedUsers;
+    final int tweetsPerUser;
+
+    LoadTestOptions(String[] args) {
+        Map<String, String> values = new HashMap<>(Map.of(
+                "users", "50",
+                "duration", "PT60S",
+                "warmup", "PT10S",
+                "think-time", "PT0S",
+                "mix", DEFAULT_MIX,
+                "out", "target/load-test",
+                "seed-users", "200",
+                "tweets-per-user", "20"));
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !values.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Expected one of " + values.keySet() + " as key=value but got " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        this.users = Integer.parseInt(values.get("users"));
+        this.duration = Duration.parse(values.get("duration"));
+        this.warmup = Duration.parse(values.get("warmup"));
+        this.thinkTime = Duration.parse(values.get("think-time"));
+        this.mix = parseMix(values.get("mix"));
+        this.output = Paths.get(values.get("out"));
+        this.seedUsers = Integer.parseInt(values.get("seed-users"));
+        this.tweetsPerUser = Integer.parseInt(values.get("tweets-per-user"));
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights.put(Operation.fromKey(parts[0]), Integer.parseInt(parts[1]));
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "users=" + this.users + " duration=" + this.duration + " warmup=" + this.warmup
+                + " think-time=" + this.thinkTime + " seed-users=" + this.seedUsers + " tweets-per-user=" + this.tweetsPerUser
+                + " mix=" + this.mix.entrySet().stream()
+                .map(weight -> weight.getKey().key() + ":" + weight.getValue())
+                .collect(Collectors.joining(","));
+    }
+}
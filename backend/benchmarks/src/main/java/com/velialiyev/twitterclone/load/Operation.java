@@ -0,0 +1,43 @@
+package com.velialiyev.twitterclone.load;
+
+/**
+ * The requests a virtual user can send, named as in the {@code mix} option.
+ */
+public enum Operation {
+    SIGN_IN("sign-in", "POST /auth/sign-in"),
+    FEED("feed", "GET /posts"),
+    TWEETS_TAB("tweets-tab", "GET /posts/tweets-by-username/{username}"),
+    RETWEETS_TAB("retweets-tab", "GET /posts/retweets-by-username/{username}"),
+    REPLIES_TAB("replies-tab", "GET /posts/replies-by-username/{username}"),
+    LIKES_TAB("likes-tab", "GET /posts/liked-by-username/{username}"),
+    LIKE("like", "POST /likes/like"),
+    RETWEET("retweet", "POST /retweets/retweet"),
+    BOOKMARK("bookmark", "POST /bookmarks/bookmark"),
+    TWEET("tweet", "POST /posts/create"),
+    PICTURE("picture", "GET /user/profile-picture/get/{username}");
+
+    private final String key;
+    private final String endpoint;
+
+    Operation(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+
+    public String key() {
+        return this.key;
+    }
+
+    public String endpoint() {
+        return this.endpoint;
+    }
+
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + key);
+    }
+}
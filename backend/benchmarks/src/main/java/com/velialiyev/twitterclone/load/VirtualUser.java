@@ -0,0 +1,144 @@
+package com.velialiyev.twitterclone.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * One signed-in user sending requests back to back, each after the previous response and an optional think time
+ * (a closed loop). Latencies are only recorded once the warmup has passed.
+ */
+class VirtualUser implements Runnable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final String username;
+    private final String password;
+    private final List<String> usernames;
+    private final List<Long> tweetIds;
+    private final Operation[] schedule;
+    private final LoadReport report;
+    private final long measureFrom;
+    private final long deadline;
+    private final long thinkMillis;
+    private final Random random;
+    private String token;
+
+    VirtualUser(HttpClient client, URI baseUri, String username, String password, List<String> usernames, List<Long> tweetIds,
+                Operation[] schedule, LoadReport report, long measureFrom, long deadline, long thinkMillis, long seed) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.username = username;
+        this.password = password;
+        this.usernames = usernames;
+        this.tweetIds = tweetIds;
+        this.schedule = schedule;
+        this.report = report;
+        this.measureFrom = measureFrom;
+        this.deadline = deadline;
+        this.thinkMillis = thinkMillis;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void run() {
+        this.send(Operation.SIGN_IN);
+        while (System.nanoTime() < this.deadline && !Thread.currentThread().isInterrupted()) {
+            this.send(this.schedule[this.random.nextInt(this.schedule.length)]);
+            if (this.thinkMillis > 0) {
+                try {
+                    Thread.sleep(this.thinkMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void send(Operation operation) {
+        HttpRequest request = this.request(operation);
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<byte[]> response = this.client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            success = response.statusCode() < 400;
+            if (success && operation == Operation.SIGN_IN) {
+                JsonNode body = JSON.readTree(response.body());
+                this.token = body.get("accessToken").asText();
+            }
+        } catch (IOException e) {
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (start >= this.measureFrom) {
+            this.report.record(operation, System.nanoTime() - start, success);
+        }
+    }
+
+    private HttpRequest request(Operation operation) {
+        String other = this.usernames.get(this.random.nextInt(this.usernames.size()));
+        Long tweetId = this.tweetIds.get(this.random.nextInt(this.tweetIds.size()));
+        switch (operation) {
+            case SIGN_IN:
+                return this.post("/auth/sign-in", Map.of("username", this.username, "password", this.password));
+            case FEED:
+                return this.get("/posts");
+            case TWEETS_TAB:
+                return this.get("/posts/tweets-by-username/" + other);
+            case RETWEETS_TAB:
+                return this.get("/posts/retweets-by-username/" + other);
+            case REPLIES_TAB:
+                return this.get("/posts/replies-by-username/" + other);
+            case LIKES_TAB:
+                return this.get("/posts/liked-by-username/" + other);
+            case LIKE:
+                return this.post("/likes/like", Map.of("tweetId", tweetId));
+            case RETWEET:
+                return this.post("/retweets/retweet", Map.of("tweetId", tweetId));
+            case BOOKMARK:
+                return this.post("/bookmarks/bookmark", Map.of("tweetId", tweetId));
+            case TWEET:
+                return this.post("/posts/create", Map.of("text", "Load test tweet by " + this.username, "type", "TWEET"));
+            case PICTURE:
+                return this.get("/user/profile-picture/get/" + other);
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return this.builder(path).GET().build();
+    }
+
+    private HttpRequest post(String path, Map<String, Object> body) {
+        try {
+            return this.builder(path)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(this.baseUri.resolve(path));
+        if (this.token != null) {
+            builder.header("Authorization", "Bearer " + this.token);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,100 @@
+package com.velialiyev.twitterclone.service;
+
+import com.velialiyev.twitterclone.benchmark.BenchmarkData;
+import com.velialiyev.twitterclone.benchmark.BenchmarkState;
+import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.entity.RetweetEntity;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.entity.TweetType;
+import com.velialiyev.twitterclone.repository.RetweetRepository;
+import com.velialiyev.twitterclone.repository.TweetRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feed queries and tweet mapping. Lives in the service package to reach the package-private mappers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TweetServiceBenchmark {
+
+    private TweetService tweetService;
+    private TweetFragmentCache tweetFragmentCache;
+    private String username;
+    private TweetEntity quote;
+    private RetweetEntity retweet;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        this.tweetService = state.bean(TweetService.class);
+        this.tweetFragmentCache = state.bean(TweetFragmentCache.class);
+        this.username = BenchmarkData.username(1);
+
+        // entities are mapped outside a session like in the services, so everything mapping reads is loaded here
+        TweetRepository tweetRepository = state.bean(TweetRepository.class);
+        RetweetRepository retweetRepository = state.bean(RetweetRepository.class);
+        new TransactionTemplate(state.bean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            this.quote = tweetRepository.findAllByType(TweetType.QUOTE).orElseThrow().get(0);
+            initialize(this.quote);
+            this.retweet = retweetRepository.findAll().get(0);
+            this.retweet.getUser().getUsername();
+            initialize(this.retweet.getTweet());
+        });
+    }
+
+    @Benchmark
+    public List<TweetResponseDto> getAll() {
+        return this.tweetService.getAll();
+    }
+
+    @Benchmark
+    public List<TweetResponseDto> getTweetsByUsername() {
+        return this.tweetService.getTweetsByUsername(this.username);
+    }
+
+    @Benchmark
+    public List<TweetResponseDto> getRetweetsByUsername() {
+        return this.tweetService.getRetweetsByUsername(this.username);
+    }
+
+    @Benchmark
+    public List<TweetResponseDto> getRepliesByUsername() {
+        return this.tweetService.getRepliesByUsername(this.username);
+    }
+
+    @Benchmark
+    public List<TweetResponseDto> getLikedByUsername() {
+        return this.tweetService.getLikedByUsername(this.username);
+    }
+
+    @Benchmark
+    public TweetResponseDto mapTweetToDto() {
+        return this.tweetService.mapTweetToDto(this.quote);
+    }
+
+    @Benchmark
+    public TweetResponseDto mapTweetToDtoUncached() {
+        this.tweetFragmentCache.invalidate(this.quote.getId());
+        return this.tweetService.mapTweetToDto(this.quote);
+    }
+
+    @Benchmark
+    public TweetResponseDto mapRetweetToDto() {
+        return this.tweetService.mapRetweetToDto(this.retweet);
+    }
+
+    private static void initialize(TweetEntity tweet) {
+        tweet.getUser().getUsername();
+        if (tweet.getTweet() != null) {
+            initialize(tweet.getTweet());
+        }
+    }
+}
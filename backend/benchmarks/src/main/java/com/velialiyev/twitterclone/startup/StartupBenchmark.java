@@ -0,0 +1,168 @@
+package com.velialiyev.twitterclone.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.velialiyev.twitterclone.TwitterCloneApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures time-to-first-request: starts the application in a fresh JVM on H2 and times how long it takes from
+ * launching the process until {@code /actuator/health} answers. Each {@link StartupOptions.Variant} is started
+ * {@code runs} times; the {@code fast-startup-cds} variant first records its archive with a training run. Prints
+ * the minimum, median and maximum per variant and writes them to {@code startup.json}, with the output of every run
+ * next to it.
+ * <p>
+ * Options are {@code key=value} arguments, see {@link StartupOptions}; for example
+ * {@code runs=10 variants=default,fast-startup}.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        StartupOptions options = new StartupOptions(args);
+        Files.createDirectories(options.output);
+        Path archive = options.output.resolve("application.jsa").toAbsolutePath();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        System.out.println("Startup benchmark: " + options);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        for (StartupOptions.Variant variant : options.variants) {
+            if (variant.cds) {
+                train(options, archive);
+            }
+            List<Long> millis = new ArrayList<>();
+            for (int run = 1; run <= options.runs; run++) {
+                millis.add(measure(options, variant, archive, client, run));
+            }
+            Collections.sort(millis);
+            long median = millis.get(millis.size() / 2);
+            System.out.printf("%-18s min %6d ms  median %6d ms  max %6d ms%n",
+                    variant.key(), millis.get(0), median, millis.get(millis.size() - 1));
+            summary.put(variant.key(), Map.of("runs", millis, "min", millis.get(0), "median", median,
+                    "max", millis.get(millis.size() - 1)));
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(options.output.resolve("startup.json").toFile(), summary);
+        System.out.println("Results written to " + options.output.toAbsolutePath());
+    }
+
+    // the archive only covers classes loaded from jar files, so the training run exits as soon as it is ready
+    private static void train(StartupOptions options, Path archive) throws Exception {
+        Files.deleteIfExists(archive);
+        List<String> command = command(options, true, "-XX:ArchiveClassesAtExit=" + archive, freePort());
+        command.add("--startup.exit-after-ready=true");
+        Process process = start(command, options.output.resolve("cds-training.log"));
+        if (!process.waitFor(options.timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Training run did not finish within " + options.timeout);
+        }
+        if (process.exitValue() != 0 || !Files.exists(archive)) {
+            throw new IllegalStateException("Training run failed, see " + options.output.resolve("cds-training.log"));
+        }
+    }
+
+    private static long measure(StartupOptions options, StartupOptions.Variant variant, Path archive, HttpClient client,
+                                int run) throws Exception {
+        int port = freePort();
+        List<String> command = command(options, variant.fastStartup,
+                variant.cds ? "-XX:SharedArchiveFile=" + archive : null, port);
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(options.timeout)
+                .build();
+        Path log = options.output.resolve(variant.key() + "-" + run + ".log");
+
+        long start = System.nanoTime();
+        Process process = start(command, log);
+        try {
+            long deadline = start + options.timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(variant.key() + " exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (ConnectException e) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(variant.key() + " did not answer within " + options.timeout + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static List<String> command(StartupOptions options, boolean fastStartup, String cdsOption, int port)
+            throws URISyntaxException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(options.jvmArgs.trim().split("\\s+")));
+        if (cdsOption != null) {
+            command.add(cdsOption);
+        }
+        command.add("-cp");
+        command.add(jarClasspath());
+        command.add(TwitterCloneApplication.class.getName());
+        command.add("--spring.profiles.active=benchmark" + (fastStartup ? ",fast-startup" : ""));
+        command.add("--spring.config.additional-location=optional:" + benchmarkConfiguration().toUri());
+        command.add("--server.port=" + port);
+        // keeps /actuator/health on the polled port instead of the separate management port
+        command.add("--management.server.port=" + port);
+        return command;
+    }
+
+    private static Process start(List<String> command, Path log) throws IOException {
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    // class data sharing refuses class path directories, so the application and this module are used as jars
+    private static String jarClasspath() {
+        List<String> jars = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> entry.endsWith(".jar"))
+                .collect(Collectors.toList());
+        if (jars.stream().noneMatch(jar -> Paths.get(jar).getFileName().toString().startsWith("twitter-clone"))) {
+            throw new IllegalStateException("The application jar is not on the class path, run mvn install in backend first");
+        }
+        return String.join(File.pathSeparator, jars);
+    }
+
+    // application-benchmark.properties lives in this module's classes directory, which is left off the class path
+    private static Path benchmarkConfiguration() throws URISyntaxException {
+        return Paths.get(StartupBenchmark.class.getResource("/application-benchmark.properties").toURI()).getParent()
+                .toAbsolutePath();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.velialiyev.twitterclone.startup;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Startup benchmark settings, given as {@code key=value} arguments. Unknown keys are rejected so that typos do not
+ * silently fall back to defaults.
+ */
+public class StartupOptions {
+
+    final int runs;
+    final List<Variant> variants;
+    final Duration timeout;
+    final Path output;
+    final String jvmArgs;
+
+    StartupOptions(String[] args) {
+        Map<String, String> values = new HashMap<>(Map.of(
+                "runs", "5",
+                "variants", "default,fast-startup,fast-startup-cds",
+                "timeout", "PT2M",
+                "out", "target/startup",
+                "jvm-args", "-Xmx512m"));
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !values.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Expected one of " + values.keySet() + " as key=value but got " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        this.runs = Integer.parseInt(values.get("runs"));
+        this.variants = Arrays.stream(values.get("variants").split(",")).map(String::trim).map(Variant::fromKey)
+                .collect(Collectors.toList());
+        this.timeout = Duration.parse(values.get("timeout"));
+        this.output = Paths.get(values.get("out"));
+        this.jvmArgs = values.get("jvm-args");
+    }
+
+    /**
+     * The ways the application is started: as configured, with the {@code fast-startup} profile, and with that
+     * profile on top of a class data sharing archive recorded by a training run.
+     */
+    enum Variant {
+        DEFAULT("default", false, false),
+        FAST_STARTUP("fast-startup", true, false),
+        FAST_STARTUP_CDS("fast-startup-cds", true, true);
+
+        private final String key;
+        final boolean fastStartup;
+        final boolean cds;
+
+        Variant(String key, boolean fastStartup, boolean cds) {
+            this.key = key;
+            this.fastStartup = fastStartup;
+            this.cds = cds;
+        }
+
+        String key() {
+            return this.key;
+        }
+
+        static Variant fromKey(String key) {
+            for (Variant variant : values()) {
+                if (variant.key.equals(key)) {
+                    return variant;
+                }
+            }
+            throw new IllegalArgumentException("Unknown variant " + key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "runs=" + this.runs + " variants=" + this.variants.stream().map(Variant::key).collect(Collectors.joining(","))
+                + " timeout=" + this.timeout + " jvm-args=" + this.jvmArgs;
+    }
+}
@@ -0,0 +1,33 @@
+#!/bin/sh
+# Builds an application class data sharing (AppCDS) archive for the fast-startup profile from a training run.
+#
+# Usage: scripts/cds-archive.sh target/twitter-clone-0.0.1-SNAPSHOT-exec.jar [--spring.datasource.url=... ...]
+#
+# The JVM cannot share classes loaded from the jars nested in the executable jar, so the jar is unpacked into
+# target/cds with the application classes repackaged as a jar of their own. The training run starts the application
+# with the given arguments, which must reach a migrated database, and exits once it is ready. Start it afterwards
+# with scripts/run-with-cds.sh.
+set -e
+
+JAR="$1"
+shift
+OUT=target/cds
+
+rm -rf "$OUT"
+mkdir -p "$OUT/lib"
+unzip -q "$JAR" -d "$OUT/exploded"
+cp "$OUT"/exploded/BOOT-INF/lib/*.jar "$OUT/lib/"
+jar cf "$OUT/application.jar" -C "$OUT/exploded/BOOT-INF/classes" .
+rm -rf "$OUT/exploded"
+
+# the archive is only used with exactly this class path
+CLASSPATH="$OUT/application.jar"
+for lib in "$OUT"/lib/*.jar; do
+    CLASSPATH="$CLASSPATH:$lib"
+done
+echo "$CLASSPATH" > "$OUT/classpath"
+
+java -XX:ArchiveClassesAtExit="$OUT/application.jsa" -cp "$CLASSPATH" \
+    com.velialiyev.twitterclone.TwitterCloneApplication \
+    --spring.profiles.active=fast-startup --startup.exit-after-ready=true "$@"
+echo "Wrote $OUT/application.jsa"
@@ -0,0 +1,11 @@
+#!/bin/sh
+# Starts the application with the fast-startup profile and the archive written by scripts/cds-archive.sh.
+#
+# Usage: scripts/run-with-cds.sh [--spring.datasource.url=... ...]
+set -e
+
+OUT=target/cds
+
+exec java -XX:SharedArchiveFile="$OUT/application.jsa" -Xlog:cds=warning -cp "$(cat "$OUT/classpath")" \
+    com.velialiyev.twitterclone.TwitterCloneApplication \
+    --spring.profiles.active=fast-startup "$@"
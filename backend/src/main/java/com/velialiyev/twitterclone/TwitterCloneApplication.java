@@ -2,16 +2,24 @@ package com.velialiyev.twitterclone;
 import com.velialiyev.twitterclone.config.SwaggerConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Import;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 @Import(SwaggerConfig.class)
 public class TwitterCloneApplication {
 
+    private static final int STARTUP_STEPS = 4096;
+
     public static void main(String[] args) {
-        SpringApplication.run(TwitterCloneApplication.class, args);
+        SpringApplication application = new SpringApplication(TwitterCloneApplication.class);
+        // keeps the startup steps for the startup report and /actuator/startup
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
     }
 
 }
@@ -0,0 +1,165 @@
+package com.velialiyev.twitterclone.config;
+
+import com.velialiyev.twitterclone.datasource.ReplicaLagMonitor;
+import com.velialiyev.twitterclone.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes read-only transactions to read replicas. Only active when {@code datasource.replica.urls} is set; the
+ * primary keeps using the regular {@code spring.datasource.*} properties and the replicas share its driver. Every
+ * pool, the replicas' included, takes its settings from {@code spring.datasource.hikari.*}.
+ * <p>
+ * A client that wrote gets the commit time in the {@value #LAST_WRITE_COOKIE} cookie, and reads from the primary on
+ * any instance while it is recent. Replica reads that may be behind this instance's caches leave Hibernate's
+ * second-level and query caches as they are.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.urls")
+public class ReplicaDataSourceConfig {
+
+    public static final String LAST_WRITE_COOKIE = "last-write";
+
+    @Value("${datasource.replica.urls}")
+    private List<String> replicaUrls;
+
+    @Value("${datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${datasource.replica.pin-window}")
+    private Duration pinWindow;
+
+    @Value("${datasource.replica.max-lag}")
+    private Duration maxLag;
+
+    // the pool settings are bound the way Boot binds them for its own datasource
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // the primary is asked for by name, as the @Primary data source below is the one wrapping this
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             DataSourceProperties properties, Environment environment) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < this.replicaUrls.size(); i++) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(this.replicaUrls.get(i))
+                    .username(this.replicaUsername)
+                    .password(this.replicaPassword)
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + i);
+            replicas.put("replica-" + i, replica);
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicas, this.pinWindow, Clock.systemUTC());
+        // replicas join the rotation once the first lag check has seen them current
+        replicas.keySet().forEach(replica -> routing.markHealthy(replica, false));
+        routing.setBehindReadListener(ReplicaDataSourceConfig::readCachesOnly);
+        return routing;
+    }
+
+    // registered as a plain filter bean: any FilterRegistrationBean would switch off Boot's own metrics filter
+    @Bean
+    public LastWriteFilter lastWriteFilter(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LastWriteFilter(replicaRoutingDataSource, this.pinWindow);
+    }
+
+    @Bean(initMethod = "createHeartbeatTable")
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, this.maxLag, Clock.systemUTC());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    // the transaction's session still reads the caches, but no longer puts what it loads into them
+    private static void readCachesOnly() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                ((EntityManagerHolder) resource).getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    static class LastWriteFilter extends OncePerRequestFilter {
+
+        private final ReplicaRoutingDataSource replicaRoutingDataSource;
+        private final Duration pinWindow;
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+            this.replicaRoutingDataSource.bindClient(lastWrite(request), committedAt -> {
+                if (!response.isCommitted()) {
+                    response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(LAST_WRITE_COOKIE, Long.toString(committedAt))
+                            .path("/")
+                            .maxAge(this.pinWindow)
+                            .httpOnly(true)
+                            .sameSite("Lax")
+                            .build()
+                            .toString());
+                }
+            });
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                this.replicaRoutingDataSource.unbindClient();
+            }
+        }
+
+        private static long lastWrite(HttpServletRequest request) {
+            Cookie cookie = WebUtils.getCookie(request, LAST_WRITE_COOKIE);
+            try {
+                return cookie == null ? 0 : Long.parseLong(cookie.getValue());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.velialiyev.twitterclone.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Local second-level cache for user and tweet rows, which are read far more often than they change. Every region is
+ * created here with its own size and time to live, and Hibernate refuses to start with an entity or query cached in
+ * a region that does not exist. Hits, misses and puts per region are published as
+ * {@code hibernate.second.level.cache.*} metrics.
+ * <p>
+ * The regions use {@code READ_WRITE}, which replaces an entry when its row is updated rather than dropping it, so a
+ * like only rewrites the cached tweet. Bulk updates such as the picture updates in {@code UserRepository} clear the
+ * whole region of their entity.
+ * <p>
+ * The list queries of the tweet, like, retweet and bookmark repositories are cached in a query region per method,
+ * which gives each method its own size budget and its own {@code repository.query.cache.requests} hit and miss
+ * counts. A cached result holds the IDs of its rows, stamped with the time it was read, and is discarded on its
+ * next read once any table it read was written since; the rows themselves come from the entity regions.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String USER_REGION = "user";
+    public static final String USER_NATURAL_ID_REGION = "user-natural-id";
+    public static final String USER_QUERY_REGION = "user-queries";
+    public static final String TWEET_REGION = "tweet";
+    public static final String LIKE_REGION = "like";
+    public static final String RETWEET_REGION = "retweet";
+    public static final String BOOKMARK_REGION = "bookmark";
+    public static final String TWEETS_BY_USER_AND_TYPE_REGION = "TweetRepository.findAllByUserAndType";
+    public static final String TWEETS_BY_TWEET_AND_TYPE_REGION = "TweetRepository.findAllByTweetAndType";
+    public static final String TWEETS_BY_TYPE_REGION = "TweetRepository.findAllByType";
+    public static final String LIKES_BY_USER_REGION = "LikeRepository.findAllByUser";
+    public static final String RETWEETS_BY_USER_REGION = "RetweetRepository.findAllByUser";
+    public static final String BOOKMARKS_BY_USER_REGION = "BookmarkRepository.findAllByUser";
+    public static final List<String> LIST_QUERY_REGIONS = List.of(TWEETS_BY_USER_AND_TYPE_REGION,
+            TWEETS_BY_TWEET_AND_TYPE_REGION, TWEETS_BY_TYPE_REGION, LIKES_BY_USER_REGION, RETWEETS_BY_USER_REGION,
+            BOOKMARKS_BY_USER_REGION);
+    public static final String TWEET_TABLE = "tweet_entity";
+    public static final String LIKE_TABLE = "like_entity";
+    public static final String RETWEET_TABLE = "retweet_entity";
+    public static final String BOOKMARK_TABLE = "bookmark_entity";
+    // the list queries that read each table, whose cached results a write to it makes stale
+    public static final Map<String, List<String>> LIST_QUERY_REGIONS_BY_TABLE = Map.of(
+            TWEET_TABLE, List.of(TWEETS_BY_USER_AND_TYPE_REGION, TWEETS_BY_TWEET_AND_TYPE_REGION, TWEETS_BY_TYPE_REGION),
+            LIKE_TABLE, List.of(LIKES_BY_USER_REGION),
+            RETWEET_TABLE, List.of(RETWEETS_BY_USER_REGION),
+            BOOKMARK_TABLE, List.of(BOOKMARKS_BY_USER_REGION));
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${second-level-cache.user.max-entries}") long userEntries,
+                                                @Value("${second-level-cache.user.ttl}") Duration userTtl,
+                                                @Value("${second-level-cache.tweet.max-entries}") long tweetEntries,
+                                                @Value("${second-level-cache.tweet.ttl}") Duration tweetTtl,
+                                                @Value("${second-level-cache.interaction.max-entries}") long interactionEntries,
+                                                @Value("${second-level-cache.interaction.ttl}") Duration interactionTtl,
+                                                @Value("${second-level-cache.query.max-entries}") long queryEntries,
+                                                @Value("${second-level-cache.query.ttl}") Duration queryTtl,
+                                                @Value("${second-level-cache.list-query.max-entries}") long listQueryEntries,
+                                                @Value("${second-level-cache.list-query.ttl}") Duration listQueryTtl) {
+        // the provider hands out one manager per URI, so every application context gets a URI of its own
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("second-level-cache:" + UUID.randomUUID()), this.getClass().getClassLoader());
+        createRegion(cacheManager, USER_REGION, userEntries, userTtl);
+        createRegion(cacheManager, USER_NATURAL_ID_REGION, userEntries, userTtl);
+        createRegion(cacheManager, TWEET_REGION, tweetEntries, tweetTtl);
+        for (String region : List.of(LIKE_REGION, RETWEET_REGION, BOOKMARK_REGION)) {
+            createRegion(cacheManager, region, interactionEntries, interactionTtl);
+        }
+        createRegion(cacheManager, USER_QUERY_REGION, queryEntries, queryTtl);
+        for (String region : LIST_QUERY_REGIONS) {
+            createRegion(cacheManager, region, listQueryEntries, listQueryTtl);
+        }
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queryEntries, queryTtl);
+        // one entry per table; evicting one would let cached query results outlive a change to their table
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, null, null);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @Bean
+    public MeterBinder listQueryCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String region : LIST_QUERY_REGIONS) {
+                FunctionCounter.builder("repository.query.cache.requests", statistics, stats -> hits(stats, region))
+                        .tag("method", region).tag("result", "hit").register(registry);
+                // includes results dropped because one of their tables changed
+                FunctionCounter.builder("repository.query.cache.requests", statistics, stats -> misses(stats, region))
+                        .tag("method", region).tag("result", "miss").register(registry);
+            }
+        };
+    }
+
+    // Hibernate only creates a query region, and its statistics, on the first query that uses it
+    private static double hits(Statistics statistics, String region) {
+        CacheRegionStatistics regionStatistics = statistics.getQueryRegionStatistics(region);
+        return regionStatistics == null ? 0 : regionStatistics.getHitCount();
+    }
+
+    private static double misses(Statistics statistics, String region) {
+        CacheRegionStatistics regionStatistics = statistics.getQueryRegionStatistics(region);
+        return regionStatistics == null ? 0 : regionStatistics.getMissCount();
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, Long maxEntries, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate already stores disassembled copies, so the entries need not be copied again
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        if (maxEntries != null) {
+            configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        }
+        if (ttl != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        cacheManager.createCache(name, configuration);
+    }
+}
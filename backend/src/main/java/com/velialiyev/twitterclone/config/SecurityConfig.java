@@ -7,10 +7,14 @@ import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
 import com.velialiyev.twitterclone.repository.UserRepository;
+import com.velialiyev.twitterclone.service.RequestTracer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -26,6 +30,9 @@ import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.oauth2.server.resource.web.BearerTokenAuthenticationEntryPoint;
 import org.springframework.security.oauth2.server.resource.web.access.BearerTokenAccessDeniedHandler;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -62,7 +69,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity httpSecurity) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity httpSecurity, Environment environment) throws Exception {
 
         httpSecurity
                 .cors().and().csrf().disable()
@@ -70,6 +77,9 @@ public class SecurityConfig {
                         .antMatchers("/auth/**").permitAll()
                         .antMatchers("/user/profile-picture/get/**").permitAll()
                         .antMatchers("/user/banner-picture/get/**").permitAll()
+                        .antMatchers("/actuator/health").permitAll()
+                        .requestMatchers(new AndRequestMatcher(new AntPathRequestMatcher("/actuator/prometheus"),
+                                onSeparateManagementPort(environment))).permitAll()
                         .antMatchers("/v2/api-docs",
                                 "/configuration/ui",
                                 "/swagger-resources/**",
@@ -86,9 +96,27 @@ public class SecurityConfig {
         return httpSecurity.build();
     }
 
+    // the management port is not published, so scrapers reaching it are inside the deployment
+    private static RequestMatcher onSeparateManagementPort(Environment environment) {
+        if (ManagementPortType.get(environment) != ManagementPortType.DIFFERENT) {
+            return request -> false;
+        }
+        int managementPort = environment.getRequiredProperty("management.server.port", Integer.class);
+        return request -> request.getLocalPort() == managementPort;
+    }
+
     @Bean
-    JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withPublicKey(this.publicKey).build();
+    JwtDecoder jwtDecoder(ObjectProvider<RequestTracer> requestTracer) {
+        JwtDecoder jwtDecoder = NimbusJwtDecoder.withPublicKey(this.publicKey).build();
+        RequestTracer tracer = requestTracer.getIfAvailable();
+        if (tracer == null) {
+            return jwtDecoder;
+        }
+        return token -> {
+            try (RequestTracer.Phase phase = tracer.phase("jwt")) {
+                return jwtDecoder.decode(token);
+            }
+        };
     }
 
     @Bean
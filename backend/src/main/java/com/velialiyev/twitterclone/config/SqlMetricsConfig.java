@@ -0,0 +1,94 @@
+package com.velialiyev.twitterclone.config;
+
+import com.velialiyev.twitterclone.datasource.SqlStatementCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Records how many SQL statements each HTTP request runs, per endpoint, and flags likely N+1 queries: requests in
+ * which one statement shape runs at least {@code sql.n-plus-one.threshold} times, typically lazy associations being
+ * loaded one row at a time. Flagged requests are logged and counted in {@code sql.n-plus-one}.
+ */
+@Slf4j
+@Configuration
+public class SqlMetricsConfig {
+
+    @Bean
+    public SqlStatementCounter sqlStatementCounter() {
+        return new SqlStatementCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementInspector(SqlStatementCounter sqlStatementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+    }
+
+    // registered as a plain filter bean: any FilterRegistrationBean would switch off Boot's own metrics filter
+    @Bean
+    public SqlMetricsFilter sqlMetricsFilter(SqlStatementCounter sqlStatementCounter, MeterRegistry meterRegistry,
+                                             @Value("${sql.n-plus-one.threshold}") int threshold) {
+        return new SqlMetricsFilter(sqlStatementCounter, meterRegistry, threshold);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @RequiredArgsConstructor
+    static class SqlMetricsFilter extends OncePerRequestFilter {
+
+        private final SqlStatementCounter sqlStatementCounter;
+        private final MeterRegistry meterRegistry;
+        private final int threshold;
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+            this.sqlStatementCounter.start();
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                this.record(request, this.sqlStatementCounter.stop());
+            }
+        }
+
+        private void record(HttpServletRequest request, SqlStatementCounter.Statements statements) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            DistributionSummary.builder("http.server.requests.sql.statements")
+                    .description("SQL statements run per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .serviceLevelObjectives(1, 2, 5, 10, 20, 50, 100, 200)
+                    .register(this.meterRegistry)
+                    .record(statements.total());
+
+            Map.Entry<String, Integer> mostRepeated = statements.mostRepeated();
+            if (mostRepeated != null && mostRepeated.getValue() >= this.threshold) {
+                Counter.builder("sql.n-plus-one")
+                        .description("Requests that repeated one SQL statement at least the N+1 threshold")
+                        .tag("method", request.getMethod())
+                        .tag("uri", uri)
+                        .register(this.meterRegistry)
+                        .increment();
+                log.warn("Possible N+1 in {} {}: {} of {} statements were {}", request.getMethod(), uri,
+                        mostRepeated.getValue(), statements.total(), mostRepeated.getKey());
+            }
+        }
+    }
+}
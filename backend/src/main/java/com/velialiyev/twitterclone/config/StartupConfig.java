@@ -0,0 +1,75 @@
+package com.velialiyev.twitterclone.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Keeps lazy initialization from switching off scheduled jobs, reports the slowest startup steps recorded by the
+ * {@link BufferingApplicationStartup} set up in {@code main}, and ends training runs for the class data sharing
+ * archive once the application is ready.
+ */
+@Slf4j
+@Configuration
+public class StartupConfig {
+
+    @Value("${startup.report.top}")
+    private int reportTop;
+
+    @Value("${startup.exit-after-ready}")
+    private boolean exitAfterReady;
+
+    // a lazy bean is never created without a caller, so its @Scheduled methods would never be registered
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Scheduled>) method -> AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class))
+                .isEmpty();
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        if (context.getApplicationStartup() instanceof BufferingApplicationStartup) {
+            this.report(((BufferingApplicationStartup) context.getApplicationStartup()).getBufferedTimeline());
+        }
+        if (this.exitAfterReady) {
+            log.info("Exiting after startup as startup.exit-after-ready is set");
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void report(StartupTimeline timeline) {
+        List<StartupTimeline.TimelineEvent> slowest = timeline.getEvents().stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(this.reportTop)
+                .collect(Collectors.toList());
+        log.info("Slowest of {} startup steps since {}:{}", timeline.getEvents().size(), timeline.getStartTime(),
+                slowest.stream().map(event -> String.format("%n%8d ms  %s%s", event.getDuration().toMillis(),
+                        event.getStartupStep().getName(), tags(event.getStartupStep()))).collect(Collectors.joining()));
+    }
+
+    private static String tags(StartupStep step) {
+        String tags = StreamSupport.stream(step.getTags().spliterator(), false)
+                .map(tag -> tag.getKey() + "=" + tag.getValue())
+                .collect(Collectors.joining(", "));
+        return tags.isEmpty() ? "" : " [" + tags + "]";
+    }
+}
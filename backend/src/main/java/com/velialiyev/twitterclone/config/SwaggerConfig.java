@@ -1,7 +1,22 @@
 package com.velialiyev.twitterclone.config;
 
+import org.springframework.boot.actuate.autoconfigure.endpoint.web.CorsEndpointProperties;
+import org.springframework.boot.actuate.autoconfigure.endpoint.web.WebEndpointProperties;
+import org.springframework.boot.actuate.autoconfigure.web.server.ConditionalOnManagementPort;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.boot.actuate.endpoint.ExposableEndpoint;
+import org.springframework.boot.actuate.endpoint.web.EndpointLinksResolver;
+import org.springframework.boot.actuate.endpoint.web.EndpointMapping;
+import org.springframework.boot.actuate.endpoint.web.EndpointMediaTypes;
+import org.springframework.boot.actuate.endpoint.web.ExposableWebEndpoint;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointsSupplier;
+import org.springframework.boot.actuate.endpoint.web.annotation.ControllerEndpointsSupplier;
+import org.springframework.boot.actuate.endpoint.web.annotation.ServletEndpointsSupplier;
+import org.springframework.boot.actuate.endpoint.web.servlet.WebMvcEndpointHandlerMapping;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -11,8 +26,13 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 @Configuration
 @EnableSwagger2
+@ConditionalOnProperty(name = "swagger.enabled", havingValue = "true", matchIfMissing = true)
 public class SwaggerConfig {
     @Bean
     public Docket twitterCloneApi(){
@@ -24,12 +44,34 @@ public class SwaggerConfig {
                 .apiInfo(getApiInfo());
     }
 
+    // Springfox reads every handler mapping of this context and only understands ant-style ones, like those of the
+    // controllers under @EnableWebMvc. The actuator's own mapping uses path patterns, so while the actuator shares
+    // this context it is declared here with ant-style matching instead. On a separate management port the actuator
+    // has a context of its own, which springfox does not see.
+    @Bean
+    @ConditionalOnManagementPort(ManagementPortType.SAME)
+    public WebMvcEndpointHandlerMapping webEndpointServletHandlerMapping(WebEndpointsSupplier webEndpointsSupplier,
+                                                                         ServletEndpointsSupplier servletEndpointsSupplier,
+                                                                         ControllerEndpointsSupplier controllerEndpointsSupplier,
+                                                                         EndpointMediaTypes endpointMediaTypes,
+                                                                         CorsEndpointProperties corsProperties,
+                                                                         WebEndpointProperties webEndpointProperties) {
+        Collection<ExposableWebEndpoint> webEndpoints = webEndpointsSupplier.getEndpoints();
+        List<ExposableEndpoint<?>> allEndpoints = new ArrayList<>(webEndpoints);
+        allEndpoints.addAll(servletEndpointsSupplier.getEndpoints());
+        allEndpoints.addAll(controllerEndpointsSupplier.getEndpoints());
+        String basePath = webEndpointProperties.getBasePath();
+        boolean linksMapping = webEndpointProperties.getDiscovery().isEnabled() && StringUtils.hasText(basePath);
+        return new WebMvcEndpointHandlerMapping(new EndpointMapping(basePath), webEndpoints, endpointMediaTypes,
+                corsProperties.toCorsConfiguration(), new EndpointLinksResolver(allEndpoints, basePath), linksMapping);
+    }
+
     private ApiInfo getApiInfo(){
         return new ApiInfoBuilder()
                 .title("Twitter Clone Api")
                 .version("1.0")
                 .description("API for Twitter Clone")
-                .contact(new Contact("Veli Aliyev", "https://www.linkedin.com/in/velialiev/", "veli_aliyev@outlook.com"))
+                .contact(new Contact("Veli Aliyev", "https://www.linkedin.com/in/velialiyev/", "veli_aliyev@outlook.com"))
                 .license("MIT License")
                 .build();
     }
@@ -0,0 +1,224 @@
+package com.velialiyev.twitterclone.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.velialiyev.twitterclone.service.RequestTracer;
+import com.velialiyev.twitterclone.service.SpanExporter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the phases of every HTTP request: {@code jwt} decoding, loading the signed-in {@code user}, {@code db}
+ * repository calls, {@code map}ping entities to DTOs and JSON {@code serialize}ation. With {@code tracing.server-timing}
+ * the totals are sent back to signed-in callers in a {@code Server-Timing} header, and a {@code tracing.sample-rate}
+ * share of requests is exported as spans to {@code tracing.export.file} and/or the Zipkin-compatible collector at
+ * {@code tracing.export.endpoint}.
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final AuthenticationTrustResolver TRUST_RESOLVER = new AuthenticationTrustResolverImpl();
+
+    @Bean
+    public RequestTracer requestTracer(@Value("${tracing.sample-rate}") double sampleRate,
+                                       @Value("${tracing.max-spans}") int maxSpans,
+                                       @Value("${tracing.export.file:}") String file,
+                                       @Value("${tracing.export.endpoint:}") String endpoint,
+                                       @Value("${management.metrics.tags.application:twitter-clone}") String serviceName,
+                                       ObjectMapper objectMapper) {
+        SpanExporter spanExporter = file.isEmpty() && endpoint.isEmpty() ? null : new SpanExporter(serviceName,
+                file.isEmpty() ? null : Paths.get(file), endpoint.isEmpty() ? null : URI.create(endpoint), objectMapper);
+        return new RequestTracer(sampleRate, maxSpans, spanExporter);
+    }
+
+    // registered as a plain filter bean: any FilterRegistrationBean would switch off Boot's own metrics filter
+    @Bean
+    public TracingFilter tracingFilter(RequestTracer requestTracer, @Value("${tracing.server-timing}") boolean serverTiming) {
+        return new TracingFilter(requestTracer, serverTiming);
+    }
+
+    // static so that the repository factory beans it customizes are not created before it
+    @Bean
+    public static BeanPostProcessor repositoryTimingPostProcessor(ObjectProvider<RequestTracer> requestTracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addInvocationListener(invocation -> requestTracer.getObject()
+                                    .record("db", invocation.getDuration(TimeUnit.NANOSECONDS))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    // the timings show where the application spends its time, so they are not handed to anonymous callers
+    static boolean isSignedIn() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() && !TRUST_RESOLVER.isAnonymous(authentication);
+    }
+
+    /**
+     * Runs just inside {@link SqlMetricsConfig.SqlMetricsFilter} so that the security filter chain is traced too.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @RequiredArgsConstructor
+    static class TracingFilter extends OncePerRequestFilter {
+
+        private final RequestTracer requestTracer;
+        private final boolean serverTiming;
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+            RequestTracer.Trace trace = this.requestTracer.start(this.serverTiming);
+            ServerTimingResponse timedResponse = this.serverTiming ? new ServerTimingResponse(response, trace) : null;
+            try {
+                chain.doFilter(request, timedResponse == null ? response : timedResponse);
+            } finally {
+                if (timedResponse != null) {
+                    timedResponse.addServerTiming();
+                }
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+                this.requestTracer.finish(trace, request.getMethod() + " " + uri, Map.of(
+                        "http.method", request.getMethod(),
+                        "http.path", request.getRequestURI(),
+                        "http.route", uri,
+                        "http.status_code", String.valueOf(response.getStatus())));
+            }
+        }
+    }
+
+    /**
+     * Adds the {@code Server-Timing} header just before the body starts, the last moment headers can be set, if the
+     * caller is signed in by then. Responses without a body are checked after the security filter chain has cleared
+     * the caller, so they go without the header.
+     */
+    static class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTracer.Trace trace;
+        private boolean added;
+
+        ServerTimingResponse(HttpServletResponse response, RequestTracer.Trace trace) {
+            super(response);
+            this.trace = trace;
+        }
+
+        void addServerTiming() {
+            if (!this.added && !this.isCommitted() && isSignedIn()) {
+                this.setHeader("Server-Timing", this.trace.serverTiming());
+            }
+            this.added = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            this.addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            this.addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            this.addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int status) throws IOException {
+            this.addServerTiming();
+            super.sendError(status);
+        }
+
+        @Override
+        public void sendError(int status, String message) throws IOException {
+            this.addServerTiming();
+            super.sendError(status, message);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            this.addServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+
+    /**
+     * Times JSON serialization. Responses that get a {@code Server-Timing} header are serialized into a buffer first,
+     * so that serialization is timed on its own and finishes before the header has to be sent; all others are
+     * written straight through.
+     */
+    static class TimedJsonConverter extends MappingJackson2HttpMessageConverter {
+
+        private final RequestTracer requestTracer;
+
+        TimedJsonConverter(MappingJackson2HttpMessageConverter converter, RequestTracer requestTracer) {
+            super(converter.getObjectMapper());
+            this.setSupportedMediaTypes(converter.getSupportedMediaTypes());
+            this.setDefaultCharset(converter.getDefaultCharset());
+            this.requestTracer = requestTracer;
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            if (!this.requestTracer.isServerTiming() || !isSignedIn()) {
+                try (RequestTracer.Phase phase = this.requestTracer.phase("serialize")) {
+                    super.writeInternal(object, type, outputMessage);
+                }
+                return;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+            try (RequestTracer.Phase phase = this.requestTracer.phase("serialize")) {
+                super.writeInternal(object, type, new HttpOutputMessage() {
+                    @Override
+                    public OutputStream getBody() {
+                        return body;
+                    }
+
+                    @Override
+                    public HttpHeaders getHeaders() {
+                        return outputMessage.getHeaders();
+                    }
+                });
+            }
+            body.writeTo(outputMessage.getBody());
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package com.velialiyev.twitterclone.config;
 
+import com.velialiyev.twitterclone.service.RequestTracer;
+import com.velialiyev.twitterclone.service.TweetFragmentCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 @EnableWebMvc
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
 
+    private final ObjectProvider<TweetFragmentCache> tweetFragmentCache;
+    private final ObjectProvider<RequestTracer> requestTracer;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -29,4 +41,14 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/webjars/**")
                 .addResourceLocations("classpath:/META-INF/resources/webjars/");
     }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        this.tweetFragmentCache.ifAvailable(cache -> converters.stream()
+                .filter(converter -> converter instanceof MappingJackson2HttpMessageConverter)
+                .forEach(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper().registerModule(cache.module())));
+        this.requestTracer.ifAvailable(tracer -> converters.replaceAll(converter -> converter instanceof MappingJackson2HttpMessageConverter
+                ? new TracingConfig.TimedJsonConverter((MappingJackson2HttpMessageConverter) converter, tracer)
+                : converter));
+    }
 }
@@ -1,14 +1,13 @@
 package com.velialiyev.twitterclone.controller;
 
 import com.velialiyev.twitterclone.dto.LikeRetweetBookmarkDto;
-import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.service.FeedVersions;
 import com.velialiyev.twitterclone.service.TweetService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @CrossOrigin
 @RestController
@@ -17,6 +16,7 @@ import java.util.List;
 public class BookmarkController {
 
     private final TweetService tweetService;
+    private final TimelineResponses timelineResponses;
 
     @PostMapping("/bookmark")
     public ResponseEntity<HttpStatus> bookmark(@RequestBody LikeRetweetBookmarkDto likeRetweetBookmarkDto){
@@ -25,9 +25,12 @@ public class BookmarkController {
     }
 
     @GetMapping("/{username}")
-    public ResponseEntity<List<TweetResponseDto>> getBookmarks(@PathVariable String username){
+    public ResponseEntity<?> getBookmarks(@PathVariable String username,
+                                          @RequestParam(defaultValue = "false") boolean sideload,
+                                          WebRequest webRequest){
 
-        return ResponseEntity.ok(this.tweetService.getBookmarksByUsername(username));
+        return this.timelineResponses.of(FeedVersions.tab("bookmarks", username), sideload, webRequest,
+                () -> this.tweetService.getBookmarksByUsername(username));
     }
 
     @PostMapping("/is-bookmarked")
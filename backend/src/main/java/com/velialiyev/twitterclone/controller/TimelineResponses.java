@@ -0,0 +1,135 @@
+package com.velialiyev.twitterclone.controller;
+
+import com.velialiyev.twitterclone.datasource.ReplicaReads;
+import com.velialiyev.twitterclone.dto.TimelineDto;
+import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import com.velialiyev.twitterclone.service.ReadCoalescer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Builds the response for a tweet list endpoint. The feed's ETag is checked before the tweets are loaded, so a
+ * client polling an unchanged feed gets a 304 without a single query. Concurrent loads of the same feed version
+ * share one query. With {@code sideload=true} the list is wrapped in a {@link TimelineDto}, which names every user
+ * once instead of repeating the author fields on each tweet.
+ * <p>
+ * The ETag also covers the counters of every tweet the list shows, quoted ones included, whichever feed they were
+ * bumped in; see {@link FeedVersions}. The JSON, Smile and CBOR bodies of a list differ, so the format is picked
+ * here from the Accept header, sent as the Content-Type and named in the ETag, like the sideload variant.
+ * <p>
+ * A list read from a replica that may be behind the feed's version is sent without an ETag, so that a later request
+ * cannot have it confirmed by a 304.
+ */
+@Component
+@RequiredArgsConstructor
+class TimelineResponses {
+
+    // in the order of the converters, so that a wildcard picks JSON
+    private static final Map<MediaType, String> FORMATS = new LinkedHashMap<>();
+
+    static {
+        FORMATS.put(MediaType.APPLICATION_JSON, "");
+        FORMATS.put(new MediaType("application", "x-jackson-smile"), "+smile");
+        FORMATS.put(MediaType.APPLICATION_CBOR, "+cbor");
+    }
+
+    private final FeedVersions feedVersions;
+    private final ReadCoalescer readCoalescer;
+
+    ResponseEntity<?> of(String feed, boolean sideload, WebRequest webRequest, Supplier<List<TweetResponseDto>> tweets) {
+        MediaType format = format(webRequest);
+        String variant = (sideload ? "s" : "") + (format == null ? "" : FORMATS.get(format));
+        FeedVersions.ListRead read = this.feedVersions.list(feed);
+        String eTag = format == null ? null : read.eTag(variant);
+        if (eTag != null && isNotModified(webRequest, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
+
+        // the version in the key keeps a write from being answered with a result loaded before it
+        List<TweetResponseDto> list;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT);
+        if (format != null) {
+            response.contentType(format);
+        }
+        try (ReplicaReads replicaReads = ReplicaReads.track()) {
+            list = this.readCoalescer.get("feed:" + feed, read.cacheVersion(), tweets);
+            // a list that may be behind would have the feed remember tweets other than the ones its clients were sent
+            String loaded = replicaReads.isBehind() || format == null ? null : read.loaded(tweetIds(list), variant);
+            if (loaded != null) {
+                response.eTag(loaded);
+            }
+        }
+        return response.body(sideload ? TimelineDto.from(list) : list);
+    }
+
+    // null when none is acceptable, which leaves the 406 to content negotiation
+    private static MediaType format(WebRequest webRequest) {
+        String[] accept = webRequest.getHeaderValues(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(List.of(accept));
+            MediaType.sortBySpecificityAndQuality(accepted);
+            for (MediaType type : accepted) {
+                if (type.getQualityValue() == 0) {
+                    continue;
+                }
+                for (MediaType format : FORMATS.keySet()) {
+                    if (type.isCompatibleWith(format)) {
+                        return format;
+                    }
+                }
+            }
+            return null;
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
+
+    private static List<Long> tweetIds(List<TweetResponseDto> list) {
+        List<Long> tweetIds = new ArrayList<>();
+        for (TweetResponseDto tweet : list) {
+            for (TweetResponseDto shown = tweet; shown != null; shown = shown.getQuote()) {
+                tweetIds.add(shown.getId());
+            }
+        }
+        return tweetIds;
+    }
+
+    // WebRequest.checkNotModified would put the ETag on a full response as well, before the list is read
+    private static boolean isNotModified(WebRequest webRequest, String eTag) {
+        String[] ifNoneMatch = webRequest.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.put(HttpHeaders.IF_NONE_MATCH, List.of(ifNoneMatch));
+        try {
+            return headers.getIfNoneMatch().stream()
+                    .anyMatch(tag -> tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(eTag));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -3,13 +3,14 @@ package com.velialiyev.twitterclone.controller;
 import com.velialiyev.twitterclone.dto.LikeRetweetBookmarkDto;
 import com.velialiyev.twitterclone.dto.TweetDto;
 import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import com.velialiyev.twitterclone.service.ReadCoalescer;
 import com.velialiyev.twitterclone.service.TweetService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @CrossOrigin
@@ -18,6 +19,9 @@ import java.util.List;
 public class TweetController {
 
     private final TweetService tweetService;
+    private final TimelineResponses timelineResponses;
+    private final ReadCoalescer readCoalescer;
+    private final FeedVersions feedVersions;
 
     @PostMapping("/create")
     public ResponseEntity<HttpStatus> createTweet(@RequestBody TweetDto tweetDto){
@@ -31,35 +35,55 @@ public class TweetController {
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/tweet/{id}")
+    public ResponseEntity<TweetResponseDto> getTweet(@PathVariable(name = "id") Long id){
+        String version = this.feedVersions.eTag(FeedVersions.tweet(id), "");
+        return ResponseEntity.ok(this.readCoalescer.get("tweet:" + id, version, () -> this.tweetService.getTweet(id)));
+    }
+
     @GetMapping("/tweets-by-username/{username}")
-    public ResponseEntity<List<TweetResponseDto>> getTweetsByUsername(@PathVariable(name = "username") String username){
-        return ResponseEntity.ok( this.tweetService.getTweetsByUsername(username));
+    public ResponseEntity<?> getTweetsByUsername(@PathVariable(name = "username") String username,
+                                                 @RequestParam(defaultValue = "false") boolean sideload,
+                                                 WebRequest webRequest){
+        return this.timelineResponses.of(FeedVersions.tab("tweets", username), sideload, webRequest,
+                () -> this.tweetService.getTweetsByUsername(username));
     }
 
     @GetMapping("/retweets-by-username/{username}")
-    public ResponseEntity<List<TweetResponseDto>> getRetweetsByUsername(@PathVariable(name = "username") String username){
-        return ResponseEntity.ok( this.tweetService.getRetweetsByUsername(username));
+    public ResponseEntity<?> getRetweetsByUsername(@PathVariable(name = "username") String username,
+                                                   @RequestParam(defaultValue = "false") boolean sideload,
+                                                   WebRequest webRequest){
+        return this.timelineResponses.of(FeedVersions.tab("retweets", username), sideload, webRequest,
+                () -> this.tweetService.getRetweetsByUsername(username));
     }
 
     @GetMapping("/replies-by-username/{username}")
-    public ResponseEntity<List<TweetResponseDto>> getRepliesByUsername(@PathVariable(name = "username") String username){
-        return ResponseEntity.ok( this.tweetService.getRepliesByUsername(username));
+    public ResponseEntity<?> getRepliesByUsername(@PathVariable(name = "username") String username,
+                                                  @RequestParam(defaultValue = "false") boolean sideload,
+                                                  WebRequest webRequest){
+        return this.timelineResponses.of(FeedVersions.tab("replies", username), sideload, webRequest,
+                () -> this.tweetService.getRepliesByUsername(username));
     }
 
     @GetMapping("/liked-by-username/{username}")
-    public ResponseEntity<List<TweetResponseDto>> getLikedByUsername(@PathVariable(name = "username") String username){
-        return ResponseEntity.ok( this.tweetService.getLikedByUsername(username));
+    public ResponseEntity<?> getLikedByUsername(@PathVariable(name = "username") String username,
+                                                @RequestParam(defaultValue = "false") boolean sideload,
+                                                WebRequest webRequest){
+        return this.timelineResponses.of(FeedVersions.tab("likes", username), sideload, webRequest,
+                () -> this.tweetService.getLikedByUsername(username));
     }
 
     @GetMapping
-    public ResponseEntity<List<TweetResponseDto>> getAll(){
-        List<TweetResponseDto> tweets = this.tweetService.getAll();
-        return ResponseEntity.ok(tweets);
+    public ResponseEntity<?> getAll(@RequestParam(defaultValue = "false") boolean sideload, WebRequest webRequest){
+        return this.timelineResponses.of(FeedVersions.GLOBAL, sideload, webRequest,
+                this.tweetService::getAll);
     }
 
     @GetMapping("/replies-for-tweet/{id}")
-    public ResponseEntity<List<TweetResponseDto>> getRepliesForTweet(@PathVariable(name = "id") Long id){
-        List<TweetResponseDto> tweets = this.tweetService.getRepliesForTweet(id);
-        return ResponseEntity.ok(tweets);
+    public ResponseEntity<?> getRepliesForTweet(@PathVariable(name = "id") Long id,
+                                                @RequestParam(defaultValue = "false") boolean sideload,
+                                                WebRequest webRequest){
+        return this.timelineResponses.of(FeedVersions.replies(id), sideload, webRequest,
+                () -> this.tweetService.getRepliesForTweet(id));
     }
 }
@@ -1,16 +1,22 @@
 package com.velialiyev.twitterclone.controller;
 
+import com.velialiyev.twitterclone.dto.PictureDto;
 import com.velialiyev.twitterclone.dto.UserDto;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import com.velialiyev.twitterclone.service.ReadCoalescer;
 import com.velialiyev.twitterclone.service.UserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 
 @RestController
@@ -19,16 +25,17 @@ import java.nio.file.Path;
 public class UserController {
 
     private final UserService userService;
+    private final ReadCoalescer readCoalescer;
+    private final FeedVersions feedVersions;
     String profilePictureDirectory = "/profilePicture";
     String bannerPictureDirectory = "/bannerPicture";
 
     @GetMapping("/profile-picture/get/{username}")
-    public ResponseEntity<?> getProfilePicture(@PathVariable(name = "username") String username){
-
-        Path path = this.userService.fetchPicturePath(username, this.profilePictureDirectory);
-        ByteArrayResource resource = this.userService.getPicture(username, this.profilePictureDirectory);
-
-        return ResponseEntity.ok().contentLength(path.toFile().length()).contentType(MediaType.IMAGE_JPEG).body(resource);
+    public ResponseEntity<?> getProfilePicture(@PathVariable(name = "username") String username,
+                                               @RequestParam(name = "v", required = false) String version,
+                                               @RequestParam(name = "size", required = false) Integer size,
+                                               WebRequest webRequest){
+        return this.getPicture(username, this.profilePictureDirectory, version, size, webRequest);
     }
 
     @PostMapping("/profile-picture/save")
@@ -42,11 +49,11 @@ public class UserController {
     }
 
     @GetMapping("/banner-picture/get/{username}")
-    public ResponseEntity<?> getBannerPicture(@PathVariable(name = "username") String username){
-        Path path = this.userService.fetchPicturePath(username, this.bannerPictureDirectory);
-        ByteArrayResource resource = this.userService.getPicture(username, this.bannerPictureDirectory);
-
-        return ResponseEntity.ok().contentLength(path.toFile().length()).contentType(MediaType.IMAGE_JPEG).body(resource);
+    public ResponseEntity<?> getBannerPicture(@PathVariable(name = "username") String username,
+                                              @RequestParam(name = "v", required = false) String version,
+                                              @RequestParam(name = "size", required = false) Integer size,
+                                              WebRequest webRequest){
+        return this.getPicture(username, this.bannerPictureDirectory, version, size, webRequest);
     }
 
     @PostMapping("/banner-picture/save")
@@ -60,9 +67,32 @@ public class UserController {
     }
 
 
+    // A request carrying the current version (?v=<hash>) can be cached forever because a new upload changes
+    // the URL; unversioned requests must revalidate, which costs a 304 and no disk read. So must a stand-in original
+    // served while the requested variant is generated, which the same URL serves once it exists.
+    private ResponseEntity<?> getPicture(String username, String directory, String version, Integer size, WebRequest webRequest){
+        PictureDto picture = this.userService.fetchPicture(username, directory, size);
+        if(picture == null){
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = "\"" + picture.getHash() + (picture.getSize() == null ? "" : "-" + picture.getSize()) + "\"";
+        long lastModified = picture.getUpdatedAt() == null ? -1 : picture.getUpdatedAt().toEpochMilli();
+        String cacheControl = picture.getHash() != null && picture.getHash().equals(version) && !picture.isPending()
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable"
+                : CacheControl.noCache().cachePublic().getHeaderValue();
+
+        if(webRequest.checkNotModified(eTag, lastModified)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).header(HttpHeaders.CACHE_CONTROL, cacheControl).build();
+        }
+
+        Resource resource = this.userService.getPicture(picture);
+        return ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, cacheControl).contentType(this.userService.pictureType(resource)).body(resource);
+    }
+
     @GetMapping("{username}")
     public ResponseEntity<UserDto> getUser(@PathVariable(name = "username") String username){
-        return ResponseEntity.ok(this.userService.getUser(username));
+        String version = this.feedVersions.eTag(FeedVersions.tab("profile", username), "");
+        return ResponseEntity.ok(this.readCoalescer.get("user:" + username, version, () -> this.userService.getUser(username)));
     }
 
     @PostMapping("/edit-profile")
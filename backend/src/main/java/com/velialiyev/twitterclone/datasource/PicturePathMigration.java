@@ -0,0 +1,129 @@
+package com.velialiyev.twitterclone.datasource;
+
+import com.velialiyev.twitterclone.service.MediaStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Moves the pictures of databases created before the {@link MediaStore} into it. Those kept the absolute path of each
+ * upload in {@code profile_picture_path} and {@code banner_picture_path}; this imports the files and fills in the
+ * hash columns the entity maps now. Version 1.1 runs right after the baseline that such databases are stamped with,
+ * and finds nothing to do on databases created from the baseline. The path columns are left in place, so a picture
+ * whose file could not be read can still be recovered by hand.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PicturePathMigration implements JavaMigration {
+
+    private final MediaStore mediaStore;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("1.1");
+    }
+
+    @Override
+    public String getDescription() {
+        return "import picture paths";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean isUndo() {
+        return false;
+    }
+
+    @Override
+    public boolean isBaselineMigration() {
+        return false;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        Set<String> columns = columns(jdbcTemplate);
+        Map<String, Supplier<String>> pictures = Map.of(
+                "profile_picture", this.mediaStore::getDefaultProfilePictureHash,
+                "banner_picture", this.mediaStore::getDefaultBannerPictureHash);
+        for (Map.Entry<String, Supplier<String>> picture : pictures.entrySet()) {
+            if (columns.contains(picture.getKey() + "_path")) {
+                // present if the application ran with ddl-auto=update after the hash columns were introduced
+                if (!columns.contains(picture.getKey() + "_hash")) {
+                    this.addHashColumns(jdbcTemplate, picture.getKey(), context.getConnection().getMetaData().getDatabaseProductName());
+                }
+                this.importPictures(jdbcTemplate, picture.getKey(), picture.getValue().get());
+            }
+        }
+    }
+
+    private static Set<String> columns(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.query("SELECT * FROM user_entity WHERE 1 = 0", rs -> {
+            Set<String> columns = new HashSet<>();
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                columns.add(metaData.getColumnName(column).toLowerCase());
+            }
+            return columns;
+        });
+    }
+
+    private void addHashColumns(JdbcTemplate jdbcTemplate, String picture, String databaseProduct) {
+        String timestamp = "MySQL".equals(databaseProduct) ? "DATETIME(6)" : "TIMESTAMP";
+        jdbcTemplate.execute("ALTER TABLE user_entity ADD COLUMN " + picture + "_hash VARCHAR(255)");
+        jdbcTemplate.execute("ALTER TABLE user_entity ADD COLUMN " + picture + "_updated_at " + timestamp);
+    }
+
+    private void importPictures(JdbcTemplate jdbcTemplate, String picture, String defaultHash) throws IOException {
+        List<Map<String, Object>> users = jdbcTemplate.queryForList("SELECT id, " + picture + "_path AS path FROM user_entity"
+                + " WHERE " + picture + "_path IS NOT NULL AND " + picture + "_hash IS NULL");
+        int imported = 0;
+        for (Map<String, Object> user : users) {
+            Path file = Paths.get((String) user.get("path"));
+            if (!Files.isRegularFile(file)) {
+                // a null hash shows the default picture, as the missing file could not be shown either
+                log.warn("Picture {} of user {} does not exist, the default is shown instead", file, user.get("id"));
+                continue;
+            }
+            String hash;
+            try (InputStream content = Files.newInputStream(file)) {
+                hash = this.mediaStore.store(content, Long.MAX_VALUE);
+            }
+            if (hash.equals(defaultHash)) {
+                continue;
+            }
+            jdbcTemplate.update("UPDATE user_entity SET " + picture + "_hash = ?, " + picture + "_updated_at = ? WHERE id = ?",
+                    hash, Timestamp.from(Files.getLastModifiedTime(file).toInstant()), user.get("id"));
+            imported++;
+        }
+        log.info("Imported {} of {} {} files into the media store", imported, users.size(), picture.replace('_', ' '));
+    }
+}
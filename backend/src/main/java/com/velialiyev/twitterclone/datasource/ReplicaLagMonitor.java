@@ -0,0 +1,72 @@
+package com.velialiyev.twitterclone.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures replication lag with a heartbeat row: the primary's row is stamped with the current time and each
+ * replica's copy is compared against the clock. A replica whose heartbeat is older than the allowed lag, or that
+ * cannot be queried at all, is taken out of rotation until it catches up.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS replication_heartbeat (id INT PRIMARY KEY, beat BIGINT NOT NULL)";
+
+    private final JdbcTemplate primary;
+    private final Map<String, JdbcTemplate> replicas;
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final Duration maxLag;
+    private final Clock clock;
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource, Duration maxLag, Clock clock) {
+        this.routingDataSource = routingDataSource;
+        this.primary = new JdbcTemplate(routingDataSource.getResolvedDefaultDataSource());
+        this.replicas = new HashMap<>();
+        routingDataSource.getResolvedDataSources().forEach((name, dataSource) -> {
+            if (!ReplicaRoutingDataSource.PRIMARY.equals(name)) {
+                this.replicas.put((String) name, new JdbcTemplate(dataSource));
+            }
+        });
+        this.maxLag = maxLag;
+        this.clock = clock;
+    }
+
+    public void createHeartbeatTable() {
+        this.primary.execute(CREATE_TABLE);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval}")
+    public void check() {
+        long now = this.clock.millis();
+        try {
+            if (this.primary.update("UPDATE replication_heartbeat SET beat = ? WHERE id = 1", now) == 0) {
+                this.primary.update("INSERT INTO replication_heartbeat (id, beat) VALUES (1, ?)", now);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not write the replication heartbeat", e);
+            return;
+        }
+
+        this.replicas.forEach((name, replica) -> {
+            boolean healthy;
+            try {
+                List<Long> beats = replica.queryForList("SELECT beat FROM replication_heartbeat WHERE id = 1", Long.class);
+                healthy = !beats.isEmpty() && now - beats.get(0) <= this.maxLag.toMillis();
+            } catch (RuntimeException e) {
+                healthy = false;
+            }
+            if (healthy != this.routingDataSource.isHealthy(name)) {
+                log.warn("Replica {} is now {}", name, healthy ? "back in rotation" : "lagging or unreachable, reading from the primary");
+            }
+            this.routingDataSource.markHealthy(name, healthy);
+        });
+    }
+}
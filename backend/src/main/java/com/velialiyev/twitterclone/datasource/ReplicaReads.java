@@ -0,0 +1,66 @@
+package com.velialiyev.twitterclone.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tells whether the current thread read from a replica that may not have caught up with the changes this instance
+ * has already applied to its caches. What such a read returns can be older than the versions it would be cached
+ * under, so the caches and ETags built on those versions must not keep it. Scopes nest, and a replica read counts
+ * towards every scope open on its thread. A transaction keeps its connection, so a scope opened within a
+ * transaction that already read from such a replica starts out behind.
+ */
+public final class ReplicaReads implements AutoCloseable {
+
+    private static final ThreadLocal<ReplicaReads> CURRENT = new ThreadLocal<>();
+    private static final Object TRANSACTION_BEHIND = new Object();
+
+    private final ReplicaReads outer;
+    private boolean behind;
+
+    private ReplicaReads(ReplicaReads outer) {
+        this.outer = outer;
+    }
+
+    public static ReplicaReads track() {
+        ReplicaReads scope = new ReplicaReads(CURRENT.get());
+        scope.behind = TransactionSynchronizationManager.hasResource(TRANSACTION_BEHIND);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Records a read that may be behind in the innermost scope open on this thread, if any, and in the current
+     * transaction.
+     */
+    public static void markBehind() {
+        ReplicaReads scope = CURRENT.get();
+        if (scope != null) {
+            scope.behind = true;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(TRANSACTION_BEHIND)) {
+            TransactionSynchronizationManager.bindResource(TRANSACTION_BEHIND, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_BEHIND);
+                }
+            });
+        }
+    }
+
+    public boolean isBehind() {
+        return this.behind;
+    }
+
+    @Override
+    public void close() {
+        if (this.outer == null) {
+            CURRENT.remove();
+            return;
+        }
+        CURRENT.set(this.outer);
+        this.outer.behind |= this.behind;
+    }
+}
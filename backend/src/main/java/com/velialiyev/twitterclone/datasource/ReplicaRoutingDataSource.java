@@ -0,0 +1,223 @@
+package com.velialiyev.twitterclone.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Sends read-only transactions to a healthy replica, round robin, and everything else to the primary. The lookup
+ * happens when a connection is first used, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}; otherwise the transaction manager
+ * fetches the connection before the transaction is marked read-only.
+ * <p>
+ * Read-your-writes is carried by the client, so that it holds on whichever instance serves its next request: the
+ * commit time of a transaction that wrote is handed to {@link #bindClient}'s callback, and a client that presents
+ * a commit time within the pin window reads from the primary. A write is any update or batch statement; read-write
+ * transactions that only read, and ones that roll back, leave no commit time. Instances' clocks are assumed to agree
+ * to well within the window.
+ * <p>
+ * For the pin window after this instance commits a write or applies another instance's change, replicas may lag
+ * behind what its caches already reflect. Replica reads in that time are reported to {@link ReplicaReads} and to the
+ * behind-read listener, so that their results are not cached under the new versions. Replicas reported unhealthy
+ * by the {@link ReplicaLagMonitor} are skipped; with none left, reads fall back to the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private static final Set<String> WRITES = Set.of("executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final List<String> replicas;
+    private final Set<String> unhealthy = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Client> clients = new ThreadLocal<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Duration pinWindow;
+    private final Clock clock;
+    private volatile long behindUntil;
+    private volatile Runnable behindReadListener = () -> { };
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration pinWindow, Clock clock) {
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        this.setTargetDataSources(targets);
+        this.setDefaultTargetDataSource(primary);
+        this.replicas = new ArrayList<>(replicas.keySet());
+        this.pinWindow = pinWindow;
+        this.clock = clock;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return this.watchWrites(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return this.watchWrites(super.getConnection(username, password));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        Client client = this.clients.get();
+        if (client != null && this.isPinned(client.lastWrite)) {
+            return PRIMARY;
+        }
+        String replica = this.nextHealthyReplica();
+        if (!PRIMARY.equals(replica) && this.clock.millis() < this.behindUntil) {
+            ReplicaReads.markBehind();
+            this.behindReadListener.run();
+        }
+        return replica;
+    }
+
+    /**
+     * Binds the client of the current request to this thread: the commit time of its last write as it presented it,
+     * or {@code 0}, and where to report the commit time of writes it makes now.
+     */
+    public void bindClient(long lastWrite, LongConsumer written) {
+        this.clients.set(new Client(lastWrite, written));
+    }
+
+    public void unbindClient() {
+        this.clients.remove();
+    }
+
+    /**
+     * Starts the pin window in which replica reads may be behind this instance's caches. Writes committed here start
+     * it on their own; changes that other instances made are reported through this.
+     */
+    public void changed() {
+        this.behindUntil = this.clock.millis() + this.pinWindow.toMillis();
+    }
+
+    /**
+     * Runs within a transaction whenever it reads from a replica that may be behind, before any row is read.
+     */
+    public void setBehindReadListener(Runnable behindReadListener) {
+        this.behindReadListener = behindReadListener;
+    }
+
+    public void markHealthy(String replica, boolean healthy) {
+        if (healthy) {
+            this.unhealthy.remove(replica);
+        } else {
+            this.unhealthy.add(replica);
+        }
+    }
+
+    public boolean isHealthy(String replica) {
+        return !this.unhealthy.contains(replica);
+    }
+
+    // Watches the statements of a read-write transaction's connection, and reports its commit once one wrote.
+    private Connection watchWrites(Connection connection) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return connection;
+        }
+        Client client = this.clients.get();
+        Runnable written = new Runnable() {
+            private boolean registered;
+
+            @Override
+            public void run() {
+                if (!this.registered && TransactionSynchronizationManager.isSynchronizationActive()) {
+                    this.registered = true;
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            committed(client);
+                        }
+                    });
+                }
+            }
+        };
+        return proxy(Connection.class, connection, (method, result) -> result instanceof Statement
+                ? proxy(method.getReturnType(), result, (statementMethod, executed) -> {
+                    if (WRITES.contains(statementMethod.getName())
+                            || statementMethod.getName().equals("execute") && Boolean.FALSE.equals(executed)) {
+                        written.run();
+                    }
+                    return executed;
+                })
+                : result);
+    }
+
+    // The window starts at commit so that it covers replication of the whole transaction.
+    private void committed(Client client) {
+        this.changed();
+        if (client != null) {
+            client.written.accept(this.clock.millis());
+        }
+    }
+
+    // a commit time further ahead than the window is not one this or another instance handed out
+    private boolean isPinned(long lastWrite) {
+        long now = this.clock.millis();
+        long window = this.pinWindow.toMillis();
+        return lastWrite > now - window && lastWrite < now + window;
+    }
+
+    private String nextHealthyReplica() {
+        int size = this.replicas.size();
+        int start = Math.floorMod(this.next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            String replica = this.replicas.get((start + i) % size);
+            if (this.isHealthy(replica)) {
+                return replica;
+            }
+        }
+        return PRIMARY;
+    }
+
+    // forwards every call to the target and lets the caller wrap what it returns
+    private static <T> T proxy(Class<T> type, Object target, ResultHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return handler.handle(method, method.invoke(target, args));
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+    }
+
+    @FunctionalInterface
+    private interface ResultHandler {
+        Object handle(Method method, Object result);
+    }
+
+    private static class Client {
+        private final long lastWrite;
+        private final LongConsumer written;
+
+        private Client(long lastWrite, LongConsumer written) {
+            this.lastWrite = lastWrite;
+            this.written = written;
+        }
+    }
+}
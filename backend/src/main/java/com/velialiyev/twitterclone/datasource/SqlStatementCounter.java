@@ -0,0 +1,90 @@
+package com.velialiyev.twitterclone.datasource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and {@link #stop()},
+ * grouped by their normalized form so that repeated statements differing only in their parameters can be spotted.
+ * Scopes nest, and a statement counts towards every scope open on its thread. Statements run on other threads or
+ * outside a started scope are not counted.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ThreadLocal<Deque<Statements>> scopes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public String inspect(String sql) {
+        Deque<Statements> open = this.scopes.get();
+        if (!open.isEmpty()) {
+            String normalized = normalize(sql);
+            open.forEach(statements -> statements.record(normalized));
+        }
+        return sql;
+    }
+
+    public void start() {
+        this.scopes.get().push(new Statements());
+    }
+
+    /**
+     * Closes the innermost scope started on this thread and returns what ran in it.
+     */
+    public Statements stop() {
+        Deque<Statements> open = this.scopes.get();
+        Statements statements = open.isEmpty() ? new Statements() : open.pop();
+        if (open.isEmpty()) {
+            this.scopes.remove();
+        }
+        return statements;
+    }
+
+    /**
+     * Replaces literals with placeholders, collapses {@code IN} lists and whitespace, and lower-cases the statement.
+     */
+    public static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim().toLowerCase();
+    }
+
+    public static class Statements {
+        private final Map<String, Integer> counts = new HashMap<>();
+        private int total;
+
+        private void record(String sql) {
+            this.counts.merge(sql, 1, Integer::sum);
+            this.total++;
+        }
+
+        public int total() {
+            return this.total;
+        }
+
+        /**
+         * Normalized statements and how often each ran.
+         */
+        public Map<String, Integer> counts() {
+            return Collections.unmodifiableMap(this.counts);
+        }
+
+        /**
+         * The most repeated statement, or {@code null} if none ran.
+         */
+        public Map.Entry<String, Integer> mostRepeated() {
+            return this.counts.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.velialiyev.twitterclone.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PictureDto {
+    private String username;
+    private String directory;
+    private String blob;
+    private String hash;
+    private Integer size;
+    // the requested variant is being generated and the original is served until it exists
+    private boolean pending;
+    private Instant updatedAt;
+}
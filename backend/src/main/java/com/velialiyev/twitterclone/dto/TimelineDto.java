@@ -0,0 +1,61 @@
+package com.velialiyev.twitterclone.dto;
+
+import lombok.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Side-loaded form of a tweet list: every user appearing in the page, whether as author, retweeter or quoted
+ * author, is written once in {@code users} and the tweets refer to them by ID.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimelineDto {
+    private Map<Long, TimelineUserDto> users;
+    private List<TimelineTweetDto> tweets;
+
+    public static TimelineDto from(List<TweetResponseDto> tweets) {
+        Map<Long, TimelineUserDto> users = new LinkedHashMap<>();
+        List<TimelineTweetDto> timeline = tweets.stream()
+                .map(tweet -> toTimelineTweet(tweet, users))
+                .collect(Collectors.toList());
+        return new TimelineDto(users, timeline);
+    }
+
+    private static TimelineTweetDto toTimelineTweet(TweetResponseDto tweet, Map<Long, TimelineUserDto> users) {
+        users.computeIfAbsent(tweet.getUserId(), id -> TimelineUserDto.builder()
+                .id(id)
+                .firstName(tweet.getFirstName())
+                .lastName(tweet.getLastName())
+                .username(tweet.getUsername())
+                .build());
+
+        UserDto retweetedBy = tweet.getRetweetedBy();
+        if (retweetedBy != null) {
+            users.putIfAbsent(retweetedBy.getId(), TimelineUserDto.builder()
+                    .id(retweetedBy.getId())
+                    .firstName(retweetedBy.getFirstName())
+                    .lastName(retweetedBy.getLastName())
+                    .username(retweetedBy.getUsername())
+                    .build());
+        }
+
+        return TimelineTweetDto.builder()
+                .id(tweet.getId())
+                .userId(tweet.getUserId())
+                .duration(tweet.getDuration())
+                .tweetText(tweet.getTweetText())
+                .replyCounter(tweet.getReplyCounter())
+                .retweetCounter(tweet.getRetweetCounter())
+                .likeCounter(tweet.getLikeCounter())
+                .retweetedById(retweetedBy == null ? null : retweetedBy.getId())
+                .quote(tweet.getQuote() == null ? null : toTimelineTweet(tweet.getQuote(), users))
+                .build();
+    }
+}
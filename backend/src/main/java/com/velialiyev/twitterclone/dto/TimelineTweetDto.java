@@ -0,0 +1,26 @@
+package com.velialiyev.twitterclone.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+/**
+ * A tweet inside a {@link TimelineDto}. Authors and retweeters are referenced by ID and looked up in the envelope's
+ * user dictionary.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TimelineTweetDto {
+    private Long id;
+    private Long userId;
+    private String duration;
+    private String tweetText;
+    private Integer replyCounter;
+    private Integer retweetCounter;
+    private Integer likeCounter;
+    private Long retweetedById;
+    private TimelineTweetDto quote;
+}
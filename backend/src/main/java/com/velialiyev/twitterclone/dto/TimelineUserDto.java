@@ -0,0 +1,18 @@
+package com.velialiyev.twitterclone.dto;
+
+import lombok.*;
+
+/**
+ * A user inside a {@link TimelineDto}: only the names a tweet shows, not the profile fields of {@link UserDto}.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimelineUserDto {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String username;
+}
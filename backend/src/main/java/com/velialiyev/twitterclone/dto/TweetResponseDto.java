@@ -9,6 +9,7 @@ import lombok.*;
 @NoArgsConstructor
 public class TweetResponseDto {
     private Long id;
+    private Long userId;
     private String firstName;
     private String lastName;
     private String username;
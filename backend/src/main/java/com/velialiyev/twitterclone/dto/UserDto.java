@@ -8,6 +8,7 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 public class UserDto {
+    private Long id;
     private String firstName;
     private String lastName;
     private String username;
@@ -15,4 +16,6 @@ public class UserDto {
     private String location;
     private String personalWebsite;
     private String birthDate;
+    private String profilePictureVersion;
+    private String bannerPictureVersion;
 }
@@ -1,11 +1,16 @@
 package com.velialiyev.twitterclone.entity;
 
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.RETWEET_REGION)
 @Getter
 @Setter
 @SuperBuilder
@@ -1,12 +1,20 @@
 package com.velialiyev.twitterclone.entity;
 
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import java.time.Instant;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.TWEET_REGION)
+// counter updates write only the counter that changed
+@DynamicUpdate
 @Getter
 @Setter
 @Builder
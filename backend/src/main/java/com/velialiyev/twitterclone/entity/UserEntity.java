@@ -1,6 +1,11 @@
 package com.velialiyev.twitterclone.entity;
 
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
@@ -9,8 +14,12 @@ import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.USER_REGION)
+@NaturalIdCache(region = SecondLevelCacheConfig.USER_NATURAL_ID_REGION)
 @Getter
 @Setter
 @Builder
@@ -34,6 +43,7 @@ public class UserEntity {
     @NotNull
     @NotBlank
     @NotEmpty
+    @NaturalId
     @Column(unique = true)
     private String username;
 
@@ -45,8 +55,10 @@ public class UserEntity {
     @NotNull
     private String password;
 
-    private String bannerPicturePath;
-    private String profilePicturePath;
+    private String bannerPictureHash;
+    private String profilePictureHash;
+    private Instant bannerPictureUpdatedAt;
+    private Instant profilePictureUpdatedAt;
     private String bio;
     private String location;
     private String personalWebsite;
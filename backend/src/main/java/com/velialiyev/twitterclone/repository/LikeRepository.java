@@ -1,14 +1,26 @@
 package com.velialiyev.twitterclone.repository;
 
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
 import com.velialiyev.twitterclone.entity.LikeEntity;
 import com.velialiyev.twitterclone.entity.TweetEntity;
 import com.velialiyev.twitterclone.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 public interface LikeRepository extends JpaRepository<LikeEntity, Long> {
     Optional<LikeEntity> findByUserAndTweet(UserEntity user, TweetEntity tweet);
+
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfig.LIKES_BY_USER_REGION)
+    })
     Optional<List<LikeEntity>> findAllByUser(UserEntity user);
 }
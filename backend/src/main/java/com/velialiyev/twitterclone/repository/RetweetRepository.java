@@ -1,15 +1,27 @@
 package com.velialiyev.twitterclone.repository;
 
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
 import com.velialiyev.twitterclone.entity.RetweetEntity;
 import com.velialiyev.twitterclone.entity.TweetEntity;
 import com.velialiyev.twitterclone.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 public interface RetweetRepository extends JpaRepository<RetweetEntity, Long> {
     Optional<RetweetEntity> findByUserAndTweet(UserEntity user, TweetEntity tweet);
     Optional<RetweetEntity> findAllByTweet(TweetEntity tweet);
+
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfig.RETWEETS_BY_USER_REGION)
+    })
     Optional<List<RetweetEntity>> findAllByUser(UserEntity user);
 }
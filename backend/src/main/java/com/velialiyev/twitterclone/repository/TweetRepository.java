@@ -1,18 +1,39 @@
 package com.velialiyev.twitterclone.repository;
 
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
 import com.velialiyev.twitterclone.entity.TweetEntity;
 import com.velialiyev.twitterclone.entity.TweetType;
 import com.velialiyev.twitterclone.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 @Repository
 public interface TweetRepository extends JpaRepository<TweetEntity, Long> {
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfig.TWEETS_BY_USER_AND_TYPE_REGION)
+    })
     Optional<List<TweetEntity>> findAllByUserAndType(UserEntity user, TweetType type);
+
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfig.TWEETS_BY_TWEET_AND_TYPE_REGION)
+    })
     Optional<List<TweetEntity>> findAllByTweetAndType(TweetEntity tweet, TweetType type);
+
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfig.TWEETS_BY_TYPE_REGION)
+    })
     Optional<List<TweetEntity>> findAllByType(TweetType type);
 
 }
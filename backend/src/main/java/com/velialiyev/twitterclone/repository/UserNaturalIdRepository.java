@@ -0,0 +1,13 @@
+package com.velialiyev.twitterclone.repository;
+
+import com.velialiyev.twitterclone.entity.UserEntity;
+
+import java.util.Optional;
+
+/**
+ * Looks users up by their natural ID, so that both the username resolution and the user are answered from the
+ * second-level cache instead of running a query.
+ */
+public interface UserNaturalIdRepository {
+    Optional<UserEntity> findByUsername(String username);
+}
@@ -0,0 +1,22 @@
+package com.velialiyev.twitterclone.repository;
+
+import com.velialiyev.twitterclone.entity.UserEntity;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Optional;
+
+public class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // read-only like the derived query it replaces, and so that the session is still open when it is used
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<UserEntity> findByUsername(String username) {
+        return this.entityManager.unwrap(Session.class).bySimpleNaturalId(UserEntity.class).loadOptional(username);
+    }
+}
@@ -1,13 +1,46 @@
 package com.velialiyev.twitterclone.repository;
 
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
 import com.velialiyev.twitterclone.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.time.Instant;
+
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 @Repository
-public interface UserRepository extends JpaRepository<UserEntity, Long> {
+public interface UserRepository extends JpaRepository<UserEntity, Long>, UserNaturalIdRepository {
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfig.USER_QUERY_REGION)
+    })
     Optional<UserEntity> findByEmail(String email);
-    Optional<UserEntity> findByUsername(String username);
+
+    @Query("select u.profilePictureHash from UserEntity u where u.profilePictureHash is not null")
+    List<String> findAllProfilePictureHashes();
+
+    @Query("select u.bannerPictureHash from UserEntity u where u.bannerPictureHash is not null")
+    List<String> findAllBannerPictureHashes();
+
+    @Transactional
+    @Modifying
+    @Query("update UserEntity u set u.profilePictureHash = :hash, u.profilePictureUpdatedAt = :updatedAt where u.username = :username")
+    int updateProfilePicture(@Param("username") String username, @Param("hash") String hash, @Param("updatedAt") Instant updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("update UserEntity u set u.bannerPictureHash = :hash, u.bannerPictureUpdatedAt = :updatedAt where u.username = :username")
+    int updateBannerPicture(@Param("username") String username, @Param("hash") String hash, @Param("updatedAt") Instant updatedAt);
 }
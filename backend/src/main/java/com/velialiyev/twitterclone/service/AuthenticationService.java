@@ -28,21 +28,24 @@ public class AuthenticationService {
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final UserService userService;
+    private final RequestTracer requestTracer;
+    private final UserProfileCache userProfileCache;
+    private final CacheInvalidationLog cacheInvalidationLog;
 
     public void signup(SignUpRequestDto signUpRequestDto){
 
-        userRepository.save(
+        UserEntity user = userRepository.save(
                 UserEntity.builder()
                         .firstName(signUpRequestDto.getFirstName())
                         .lastName(signUpRequestDto.getLastName())
                         .username(signUpRequestDto.getUsername())
                         .email(signUpRequestDto.getEmail())
                         .password(passwordEncoder.encode(signUpRequestDto.getPassword()))
-                        .profilePicturePath("C:/uploads/DummyProfilePicture.jpg")
-                        .bannerPicturePath("C:/uploads/DummyBannerPicture.jpg")
                         .build()
         );
-
+        // the name may have been probed and remembered as unknown
+        this.userProfileCache.invalidate(signUpRequestDto.getUsername());
+        this.cacheInvalidationLog.user(user.getId(), user.getUsername());
     }
 
     public LoginResponseDto login(LoginRequestDto loginRequestDto){
@@ -78,9 +81,11 @@ public class AuthenticationService {
     }
 
     public UserEntity getUserFromJwt(){
-        Jwt principal = (Jwt) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        try (RequestTracer.Phase phase = this.requestTracer.phase("user")) {
+            Jwt principal = (Jwt) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
-        return userRepository.findByUsername(principal.getSubject()).orElseThrow();
+            return userRepository.findByUsername(principal.getSubject()).orElseThrow();
+        }
     }
 
     public List<String> findAllUsernames(){
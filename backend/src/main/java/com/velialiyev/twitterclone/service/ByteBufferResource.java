@@ -0,0 +1,37 @@
+package com.velialiyev.twitterclone.service;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Exposes a (possibly direct) buffer as a resource. Each stream reads its own view of the buffer, so the bytes are
+ * copied to the response in small chunks and never duplicated on the heap as a whole.
+ */
+public class ByteBufferResource extends AbstractResource {
+
+    private final ByteBuffer buffer;
+    private final String description;
+
+    public ByteBufferResource(ByteBuffer buffer, String description) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.description = description;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteBufferBackedInputStream(this.buffer.duplicate());
+    }
+
+    @Override
+    public long contentLength() {
+        return this.buffer.remaining();
+    }
+
+    @Override
+    public String getDescription() {
+        return "ByteBuffer resource [" + this.description + "]";
+    }
+}
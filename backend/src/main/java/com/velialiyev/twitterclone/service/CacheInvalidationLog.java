@@ -0,0 +1,154 @@
+package com.velialiyev.twitterclone.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * The {@code cache_invalidation} table, through which application instances tell each other which cached entries
+ * a change made stale. Records written inside a transaction are collected and inserted in one batch just before it
+ * commits, so they become visible together with the change and are discarded with it on rollback.
+ * {@link CacheInvalidationPoller} applies the records of other instances.
+ */
+@Component
+public class CacheInvalidationLog {
+
+    public enum Kind {
+        /** A user row changed; the entity ID is null after a bulk update, the key is the username. */
+        USER,
+        /** A tweet row changed or was deleted. */
+        TWEET,
+        /** A feed changed; the key is the feed, or null for every feed. */
+        FEED
+    }
+
+    private static final RowMapper<Invalidation> ROW_MAPPER = (rs, row) -> new Invalidation(rs.getLong("id"),
+            rs.getString("origin"), Kind.valueOf(rs.getString("kind")), rs.getObject("entity_id", Long.class),
+            rs.getString("cache_key"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String origin = UUID.randomUUID().toString();
+    private final AtomicLong published = new AtomicLong();
+
+    public CacheInvalidationLog(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        FunctionCounter.builder("cache.invalidation.records", this.published, AtomicLong::get).tag("direction", "published").register(meterRegistry);
+    }
+
+    /**
+     * Identifies this instance in the records it writes.
+     */
+    public String origin() {
+        return this.origin;
+    }
+
+    public void user(Long id, String username) {
+        this.append(new Invalidation(0, this.origin, Kind.USER, id, username));
+    }
+
+    public void tweet(Long id) {
+        this.append(new Invalidation(0, this.origin, Kind.TWEET, id, null));
+    }
+
+    public void feeds(String... feeds) {
+        for (String feed : feeds) {
+            this.append(new Invalidation(0, this.origin, Kind.FEED, null, feed));
+        }
+    }
+
+    public void allFeeds() {
+        this.append(new Invalidation(0, this.origin, Kind.FEED, null, null));
+    }
+
+    public List<Invalidation> readAfter(long id, int limit) {
+        return this.jdbcTemplate.query("SELECT id, origin, kind, entity_id, cache_key FROM cache_invalidation " +
+                "WHERE id > ? ORDER BY id LIMIT ?", ROW_MAPPER, id, limit);
+    }
+
+    public List<Invalidation> read(Collection<Long> ids) {
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        return this.jdbcTemplate.query("SELECT id, origin, kind, entity_id, cache_key FROM cache_invalidation " +
+                "WHERE id IN (" + placeholders + ") ORDER BY id", ROW_MAPPER, ids.toArray());
+    }
+
+    public long maxId() {
+        Long max = this.jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidation", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    public int deleteOlderThan(Instant cutoff) {
+        return this.jdbcTemplate.update("DELETE FROM cache_invalidation WHERE created_at < ?", Timestamp.from(cutoff));
+    }
+
+    private void append(Invalidation invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.insert(Set.of(invalidation));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Invalidation> pending = (Set<Invalidation>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Invalidation> batch = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    CacheInvalidationLog.this.insert(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationLog.this);
+                }
+            });
+            pending = batch;
+        }
+        // a transaction often invalidates the same tweet or feed more than once, repeats are written once
+        pending.add(invalidation);
+    }
+
+    private void insert(Collection<Invalidation> invalidations) {
+        if (invalidations.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        this.jdbcTemplate.batchUpdate("INSERT INTO cache_invalidation (origin, kind, entity_id, cache_key, created_at) " +
+                "VALUES (?, ?, ?, ?, ?)", invalidations.stream()
+                .map(invalidation -> new Object[]{invalidation.origin, invalidation.kind.name(), invalidation.entityId, invalidation.key, now})
+                .collect(Collectors.toList()));
+        this.published.addAndGet(invalidations.size());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    // records are only compared before they are written, when they have no ID yet
+    @EqualsAndHashCode(onlyExplicitlyIncluded = true)
+    public static final class Invalidation {
+        private final long id;
+        private final String origin;
+        @EqualsAndHashCode.Include
+        private final Kind kind;
+        @EqualsAndHashCode.Include
+        private final Long entityId;
+        @EqualsAndHashCode.Include
+        private final String key;
+    }
+}
@@ -0,0 +1,218 @@
+package com.velialiyev.twitterclone.service;
+
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
+import com.velialiyev.twitterclone.datasource.ReplicaRoutingDataSource;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the {@link CacheInvalidationLog} records of other instances to this instance's caches. It polls every
+ * {@code cache.invalidation.poll-interval} for records above the highest ID it has seen, so a change made elsewhere
+ * is seen within about one interval. The table is compacted to {@code cache.invalidation.retention}; an instance
+ * that could not poll for longer than that may have missed records and drops everything it has cached instead.
+ * <p>
+ * An ID is assigned when a record is inserted but only becomes visible when its transaction commits, so a record can
+ * appear below the highest ID already seen. IDs skipped by a poll are looked up again until
+ * {@code cache.invalidation.gap-timeout}, after which their transaction is assumed to have rolled back.
+ * <p>
+ * With read replicas, the replicas may not have the change yet when its record is applied, so each applied record
+ * also tells the {@link ReplicaRoutingDataSource} to keep replica reads out of the caches for a while.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationPoller {
+
+    // bounds the lookups after an ID jump, such as auto-increment values lost on a database restart
+    private static final int MAX_GAPS = 1000;
+    // the tables whose rows enter and leave each feed, by the feed name before its colon; profile and single tweet
+    // feeds change with user and tweet rows, which have records of their own
+    private static final Map<String, List<String>> FEED_TABLES = Map.of(
+            FeedVersions.GLOBAL, List.of(SecondLevelCacheConfig.TWEET_TABLE),
+            "tweets", List.of(SecondLevelCacheConfig.TWEET_TABLE),
+            "replies", List.of(SecondLevelCacheConfig.TWEET_TABLE),
+            "replies-for", List.of(SecondLevelCacheConfig.TWEET_TABLE),
+            "retweets", List.of(SecondLevelCacheConfig.TWEET_TABLE, SecondLevelCacheConfig.RETWEET_TABLE),
+            "likes", List.of(SecondLevelCacheConfig.LIKE_TABLE),
+            "bookmarks", List.of(SecondLevelCacheConfig.BOOKMARK_TABLE));
+
+    private final CacheInvalidationLog cacheInvalidationLog;
+    private final FeedVersions feedVersions;
+    private final UserProfileCache userProfileCache;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource;
+    private final Cache secondLevelCache;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final Duration retention;
+    // IDs above the high-water mark that were skipped, with the time they were first missed
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private final AtomicLong applied = new AtomicLong();
+    private long highWater = -1;
+    private long lastPolled;
+
+    public CacheInvalidationPoller(CacheInvalidationLog cacheInvalidationLog,
+                                   FeedVersions feedVersions,
+                                   UserProfileCache userProfileCache,
+                                   EntityManagerFactory entityManagerFactory,
+                                   ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                                   @Value("${cache.invalidation.batch-size}") int batchSize,
+                                   @Value("${cache.invalidation.gap-timeout}") Duration gapTimeout,
+                                   @Value("${cache.invalidation.retention}") Duration retention,
+                                   MeterRegistry meterRegistry) {
+        this.cacheInvalidationLog = cacheInvalidationLog;
+        this.feedVersions = feedVersions;
+        this.userProfileCache = userProfileCache;
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.retention = retention;
+
+        FunctionCounter.builder("cache.invalidation.records", this.applied, AtomicLong::get).tag("direction", "applied").register(meterRegistry);
+        Gauge.builder("cache.invalidation.gaps", this, CacheInvalidationPoller::gaps).register(meterRegistry);
+        Gauge.builder("cache.invalidation.staleness", this, CacheInvalidationPoller::staleness).baseUnit("seconds").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-interval}")
+    public synchronized void poll() {
+        long now = System.nanoTime();
+        try {
+            if (this.highWater < 0 || now - this.lastPolled > this.retention.toNanos()) {
+                this.resync();
+            }
+            else {
+                this.pollGaps(now);
+                this.pollNew(now);
+            }
+            this.lastPolled = now;
+        }
+        catch (DataAccessException e) {
+            log.warn("Could not read cache invalidations, caches may serve changes of other instances late", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.compaction-interval}", initialDelayString = "${cache.invalidation.compaction-interval}")
+    public void compact() {
+        int deleted = this.cacheInvalidationLog.deleteOlderThan(Instant.now().minus(this.retention));
+        log.debug("Cache invalidation compaction removed {} records", deleted);
+    }
+
+    public synchronized int gaps() {
+        return this.gaps.size();
+    }
+
+    /**
+     * Seconds since the last successful poll, the most that this instance's caches can lag behind the other ones.
+     */
+    public synchronized double staleness() {
+        return this.highWater < 0 ? 0 : (System.nanoTime() - this.lastPolled) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    // caches start out empty, and ones that may have missed records are emptied, so older records do not matter
+    private void resync() {
+        if (this.highWater >= 0) {
+            log.warn("Cache invalidations were not read for longer than their retention, dropping all cached data");
+            this.replicaRoutingDataSource.ifAvailable(ReplicaRoutingDataSource::changed);
+            this.secondLevelCache.evictAllRegions();
+            this.userProfileCache.invalidateAll();
+            this.feedVersions.bumpAllLocally();
+        }
+        this.gaps.clear();
+        this.highWater = this.cacheInvalidationLog.maxId();
+    }
+
+    private void pollGaps(long now) {
+        if (this.gaps.isEmpty()) {
+            return;
+        }
+        for (CacheInvalidationLog.Invalidation invalidation : this.cacheInvalidationLog.read(List.copyOf(this.gaps.keySet()))) {
+            this.gaps.remove(invalidation.getId());
+            this.apply(invalidation);
+        }
+        this.gaps.values().removeIf(missedAt -> now - missedAt > this.gapTimeoutNanos);
+    }
+
+    private void pollNew(long now) {
+        List<CacheInvalidationLog.Invalidation> batch;
+        do {
+            batch = this.cacheInvalidationLog.readAfter(this.highWater, this.batchSize);
+            for (CacheInvalidationLog.Invalidation invalidation : batch) {
+                for (long id = this.highWater + 1; id < invalidation.getId() && this.gaps.size() < MAX_GAPS; id++) {
+                    this.gaps.put(id, now);
+                }
+                this.highWater = invalidation.getId();
+                this.apply(invalidation);
+            }
+        } while (batch.size() == this.batchSize);
+    }
+
+    private void apply(CacheInvalidationLog.Invalidation invalidation) {
+        if (invalidation.getOrigin().equals(this.cacheInvalidationLog.origin())) {
+            return;
+        }
+        this.replicaRoutingDataSource.ifAvailable(ReplicaRoutingDataSource::changed);
+        switch (invalidation.getKind()) {
+            case USER:
+                if (invalidation.getEntityId() == null) {
+                    this.secondLevelCache.evictEntityData(UserEntity.class);
+                    this.secondLevelCache.evictNaturalIdData(UserEntity.class);
+                }
+                else {
+                    this.secondLevelCache.evictEntityData(UserEntity.class, invalidation.getEntityId());
+                }
+                // the timestamps that invalidate cached queries are local as well
+                this.secondLevelCache.evictQueryRegion(SecondLevelCacheConfig.USER_QUERY_REGION);
+                this.userProfileCache.invalidate(invalidation.getKey());
+                break;
+            case TWEET:
+                // cached list results must not name a tweet that can no longer be loaded
+                this.evictListQueries(List.of(SecondLevelCacheConfig.TWEET_TABLE));
+                this.secondLevelCache.evictEntityData(TweetEntity.class, invalidation.getEntityId());
+                break;
+            case FEED:
+                // every change to a list of tweets, likes, retweets or bookmarks bumps a feed
+                if (invalidation.getKey() == null) {
+                    this.evictListQueries(SecondLevelCacheConfig.LIST_QUERY_REGIONS_BY_TABLE.keySet());
+                    this.feedVersions.bumpAllLocally();
+                }
+                else {
+                    this.evictListQueries(feedTables(invalidation.getKey()));
+                    this.feedVersions.bumpLocally(invalidation.getKey());
+                }
+                break;
+        }
+        this.applied.incrementAndGet();
+    }
+
+    private static List<String> feedTables(String feed) {
+        int colon = feed.indexOf(':');
+        return FEED_TABLES.getOrDefault(colon < 0 ? feed : feed.substring(0, colon), List.of());
+    }
+
+    // mirrors the local invalidation, where Hibernate drops the cached results of queries that read a written table
+    private void evictListQueries(Collection<String> tables) {
+        for (String table : tables) {
+            SecondLevelCacheConfig.LIST_QUERY_REGIONS_BY_TABLE.get(table).forEach(this.secondLevelCache::evictQueryRegion);
+        }
+    }
+}
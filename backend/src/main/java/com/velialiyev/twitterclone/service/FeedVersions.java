@@ -0,0 +1,189 @@
+package com.velialiyev.twitterclone.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version counters for the tweet feeds, used as ETags. Each feed has its own counter, bumped when tweets
+ * enter or leave it or when the counters of a tweet it shows change. Author names can change any feed, so a rename
+ * bumps a single shared counter that is part of every ETag. The process start time is included as well, so versions
+ * never repeat across restarts.
+ * <p>
+ * Bumps are applied after the surrounding transaction commits. A reader that computes its ETag before querying can
+ * therefore only pair an old version with new data, which costs one extra download, never a stale 304. Every bump
+ * is also written to the {@link CacheInvalidationLog}, so that other instances bump their own counters.
+ * <p>
+ * A tweet's counters show in the tabs of everyone who liked, retweeted or bookmarked it, and wherever it is quoted,
+ * too many feeds to bump on each change. So every version is drawn from one sequence, each feed remembers which
+ * tweets its list showed when it was last loaded, and the ETag of a list has the newest version of those tweets'
+ * own feeds as well. The lists of the least recently read feeds are forgotten beyond the configured bounds; such a
+ * feed gets no 304 until it is loaded again.
+ */
+@Component
+public class FeedVersions {
+
+    public static final String GLOBAL = "global";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final AtomicLong shared = new AtomicLong();
+    private final LinkedHashMap<String, long[]> shown = new LinkedHashMap<>(16, 0.75f, true);
+    private long shownTweets;
+    private final int maxShownFeeds;
+    private final long maxShownTweets;
+    private final CacheInvalidationLog cacheInvalidationLog;
+
+    public FeedVersions(CacheInvalidationLog cacheInvalidationLog,
+                        @Value("${feed-versions.max-shown-feeds}") int maxShownFeeds,
+                        @Value("${feed-versions.max-shown-tweets}") long maxShownTweets) {
+        this.cacheInvalidationLog = cacheInvalidationLog;
+        this.maxShownFeeds = maxShownFeeds;
+        this.maxShownTweets = maxShownTweets;
+    }
+
+    public static String tab(String tab, String username) {
+        return tab + ":" + username;
+    }
+
+    public static String replies(Long tweetId) {
+        return "replies-for:" + tweetId;
+    }
+
+    public static String tweet(Long tweetId) {
+        return "tweet:" + tweetId;
+    }
+
+    public String eTag(String feed, String variant) {
+        return "\"" + this.version(feed) + variant + "\"";
+    }
+
+    /**
+     * Starts reading the feed's tweet list: takes the versions a load started now is at least as new as.
+     */
+    public ListRead list(String feed) {
+        long since = this.sequence.get();
+        String version = this.version(feed);
+        long[] tweetIds;
+        synchronized (this.shown) {
+            tweetIds = this.shown.get(feed);
+        }
+        return new ListRead(feed, since, version, tweetIds == null ? null : this.newest(tweetIds));
+    }
+
+    public void bump(String... feeds) {
+        this.cacheInvalidationLog.feeds(feeds);
+        this.afterCommit(() -> this.bumpLocally(feeds));
+    }
+
+    public void bumpAll() {
+        this.cacheInvalidationLog.allFeeds();
+        this.afterCommit(this::bumpAllLocally);
+    }
+
+    // for bumps that other instances made and that are already committed
+    void bumpLocally(String... feeds) {
+        for (String feed : feeds) {
+            long version = this.sequence.incrementAndGet();
+            this.versions.computeIfAbsent(feed, key -> new AtomicLong()).accumulateAndGet(version, Math::max);
+        }
+    }
+
+    void bumpAllLocally() {
+        this.shared.incrementAndGet();
+    }
+
+    private String version(String feed) {
+        AtomicLong version = this.versions.get(feed);
+        return this.epoch + "." + (version == null ? 0 : version.get()) + "." + this.shared.get();
+    }
+
+    private long newest(long[] tweetIds) {
+        long newest = 0;
+        for (long tweetId : tweetIds) {
+            AtomicLong version = this.versions.get(tweet(tweetId));
+            if (version != null) {
+                newest = Math.max(newest, version.get());
+            }
+        }
+        return newest;
+    }
+
+    private void remember(String feed, long[] tweetIds) {
+        synchronized (this.shown) {
+            long[] previous = this.shown.put(feed, tweetIds);
+            this.shownTweets += tweetIds.length - (previous == null ? 0 : previous.length);
+            Iterator<long[]> eldest = this.shown.values().iterator();
+            while (eldest.hasNext() && (this.shown.size() > this.maxShownFeeds || this.shownTweets > this.maxShownTweets)) {
+                this.shownTweets -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private void afterCommit(Runnable bump) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump.run();
+            }
+        });
+    }
+
+    /**
+     * The versions one read of a feed's tweet list starts from.
+     */
+    public final class ListRead {
+
+        private final String feed;
+        private final long since;
+        private final String version;
+        private final Long newest;
+
+        private ListRead(String feed, long since, String version, Long newest) {
+            this.feed = feed;
+            this.since = since;
+            this.version = version;
+            this.newest = newest;
+        }
+
+        /**
+         * The ETag of the list as it was last loaded, or {@code null} while the feed does not remember its tweets.
+         */
+        public String eTag(String variant) {
+            return this.newest == null ? null : "\"" + this.version + "." + this.newest + variant + "\"";
+        }
+
+        /**
+         * A version to cache the loaded list under. It changes with the ETag, and with every bump while the feed
+         * does not remember its tweets.
+         */
+        public String cacheVersion() {
+            return this.newest == null ? this.version + "?" + this.since : this.eTag("");
+        }
+
+        /**
+         * Remembers the tweets a list loaded by this read shows, and returns that list's ETag. Returns {@code null}
+         * if one of the tweets changed after the read started, as the list may be older than that change.
+         */
+        public String loaded(Collection<Long> tweetIds, String variant) {
+            long[] ids = tweetIds.stream().mapToLong(Long::longValue).toArray();
+            remember(this.feed, ids);
+            long newest = newest(ids);
+            return newest > this.since ? null : "\"" + this.version + "." + newest + variant + "\"";
+        }
+    }
+}
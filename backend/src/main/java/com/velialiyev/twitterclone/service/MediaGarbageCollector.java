@@ -0,0 +1,63 @@
+package com.velialiyev.twitterclone.service;
+
+import com.velialiyev.twitterclone.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Deletes blobs that no user references any more. Blobs younger than the grace period are kept, because an upload
+ * writes its blob before the transaction that references it commits.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MediaGarbageCollector {
+
+    private final MediaStore mediaStore;
+    private final UserRepository userRepository;
+
+    @Value("${media.gc.grace-period}")
+    private Duration gracePeriod;
+
+    @Scheduled(fixedDelayString = "${media.gc.interval}", initialDelayString = "${media.gc.interval}")
+    public void sweep() throws IOException {
+        Set<String> referenced = new HashSet<>(this.userRepository.findAllProfilePictureHashes());
+        referenced.addAll(this.userRepository.findAllBannerPictureHashes());
+        referenced.add(this.mediaStore.getDefaultProfilePictureHash());
+        referenced.add(this.mediaStore.getDefaultBannerPictureHash());
+
+        Instant cutoff = Instant.now().minus(this.gracePeriod);
+        int deleted = 0;
+        try (Stream<Path> blobs = this.mediaStore.blobs()) {
+            for (Path blob : (Iterable<Path>) blobs::iterator) {
+                // variants are named <hash>-<size> and go together with their original
+                String hash = blob.getFileName().toString().split("-")[0];
+                if (!referenced.contains(hash) && Files.getLastModifiedTime(blob).toInstant().isBefore(cutoff)) {
+                    this.mediaStore.forgetVariants(hash);
+                    Files.deleteIfExists(blob);
+                    deleted++;
+                }
+            }
+        }
+        for (Map.Entry<String, Long> packed : this.mediaStore.packedBlobs().entrySet()) {
+            if (!referenced.contains(packed.getKey().split("-")[0]) && packed.getValue() < cutoff.toEpochMilli()) {
+                this.mediaStore.deletePacked(packed.getKey());
+                deleted++;
+            }
+        }
+        log.info("Media sweep removed {} unreferenced blobs", deleted);
+    }
+}
@@ -0,0 +1,267 @@
+package com.velialiyev.twitterclone.service;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed blob store for uploaded pictures. Blobs are named by the SHA-256 of their bytes and sharded
+ * two levels deep ({@code blobs/ab/cd/abcd...}), so identical uploads share one file and no directory grows past
+ * 256 entries per level. Resized variants live next to their original as {@code <hash>-<size>}. Blobs are addressed
+ * by that name; when the {@link PackStore} is enabled, small ones are appended to its segments instead of getting a
+ * file of their own.
+ */
+@Service
+public class MediaStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_KNOWN_VARIANTS = 10_000;
+
+    private final Path blobDirectory;
+    private final Path tempDirectory;
+    private final Path defaultProfilePicture;
+    private final Path defaultBannerPicture;
+    private final PackStore packStore;
+    @Getter
+    private final List<Integer> variantSizes;
+    // LRU set of pictures whose variants were seen, so sized requests for them need no existence check
+    private final LinkedHashMap<String, Boolean> knownVariants = new LinkedHashMap<>(256, 0.75f, true);
+
+    @Getter
+    private String defaultProfilePictureHash;
+    @Getter
+    private String defaultBannerPictureHash;
+
+    public MediaStore(@Value("${image-storage-dir}") String storageDirectory,
+                      @Value("${media.default-profile-picture}") String defaultProfilePicture,
+                      @Value("${media.default-banner-picture}") String defaultBannerPicture,
+                      @Value("${media.thumbnail.sizes}") List<Integer> variantSizes,
+                      PackStore packStore) {
+        this.blobDirectory = Paths.get(storageDirectory, "blobs");
+        this.tempDirectory = Paths.get(storageDirectory, "tmp");
+        this.defaultProfilePicture = Paths.get(defaultProfilePicture);
+        this.defaultBannerPicture = Paths.get(defaultBannerPicture);
+        this.variantSizes = variantSizes.stream().sorted().collect(Collectors.toList());
+        this.packStore = packStore;
+    }
+
+    @PostConstruct
+    public void importDefaults() throws IOException {
+        Files.createDirectories(this.blobDirectory);
+        Files.createDirectories(this.tempDirectory);
+        this.defaultProfilePictureHash = this.importDefault(this.defaultProfilePicture);
+        this.defaultBannerPictureHash = this.importDefault(this.defaultBannerPicture);
+    }
+
+    private String importDefault(Path picture) throws IOException {
+        if (!Files.isRegularFile(picture)) {
+            return null;
+        }
+        try (InputStream content = Files.newInputStream(picture)) {
+            return this.store(content, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Streams the content into the store and returns its hash, keeping at most one buffer of it in memory. The data
+     * goes to a temp file that is fsynced and then renamed into place, so readers never observe a partially written
+     * blob; if a blob with the same hash already exists the copy is simply discarded, and the existing blob's age is
+     * reset so the media sweep does not take it for unreferenced before the caller has stored its hash.
+     */
+    public String store(InputStream content, long maxBytes) throws IOException {
+        MessageDigest digest = newDigest();
+        Path temp = this.createTempFile("upload");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long total = 0;
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    total += read;
+                    if (total > maxBytes) {
+                        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Upload exceeds " + maxBytes + " bytes");
+                    }
+                    digest.update(buffer, 0, read);
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                }
+                channel.force(true);
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (!this.touch(hash)) {
+                try {
+                    this.publish(temp, hash);
+                } catch (FileAlreadyExistsException e) {
+                    // a concurrent upload of the same content won the rename, which is just as good
+                }
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * File a blob is stored in unless it is packed. Variant names start with their original's hash, so they shard
+     * into the same directory.
+     */
+    public Path resolve(String name) {
+        return this.blobDirectory.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    public Path resolveVariant(String hash, int size) {
+        return this.resolve(variantName(hash, size));
+    }
+
+    public static String variantName(String hash, int size) {
+        return hash + "-" + size;
+    }
+
+    private boolean touch(String name) throws IOException {
+        if (this.packStore.touch(name)) {
+            return true;
+        }
+        try {
+            Files.setLastModifiedTime(this.resolve(name), FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    public boolean exists(String name) {
+        return this.packStore.contains(name) || Files.exists(this.resolve(name));
+    }
+
+    /**
+     * Returns the packed blob as a read-only view of its mapped segment, or {@code null} if it is stored as a file.
+     */
+    public ByteBuffer readPacked(String name) throws IOException {
+        return this.packStore.read(name);
+    }
+
+    public InputStream openStream(String name) throws IOException {
+        ByteBuffer packed = this.readPacked(name);
+        return packed != null ? new ByteBufferBackedInputStream(packed) : Files.newInputStream(this.resolve(name));
+    }
+
+    /**
+     * Picks the smallest variant at least as large as the requested size. Returns {@code null} when the original
+     * should be served instead, either because nothing large enough exists or because it has not been generated yet.
+     */
+    public Integer closestVariant(String hash, Integer requestedSize) {
+        Integer size = this.variantSize(requestedSize);
+        return size != null && this.hasVariants(hash) ? size : null;
+    }
+
+    /**
+     * The smallest configured variant size at least as large as the requested size, or {@code null} if there is none.
+     */
+    public Integer variantSize(Integer requestedSize) {
+        if (requestedSize == null) {
+            return null;
+        }
+        return this.variantSizes.stream().filter(size -> size >= requestedSize).findFirst().orElse(null);
+    }
+
+    // variants are published smallest first, so once the largest exists they all do
+    private boolean hasVariants(String hash) {
+        synchronized (this.knownVariants) {
+            if (this.knownVariants.get(hash) != null) {
+                return true;
+            }
+        }
+        if (!this.exists(variantName(hash, this.variantSizes.get(this.variantSizes.size() - 1)))) {
+            return false;
+        }
+        synchronized (this.knownVariants) {
+            this.knownVariants.put(hash, Boolean.TRUE);
+            var eldest = this.knownVariants.entrySet().iterator();
+            while (this.knownVariants.size() > MAX_KNOWN_VARIANTS && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops what is remembered about a picture's variants, for when its blobs are deleted.
+     */
+    public void forgetVariants(String hash) {
+        synchronized (this.knownVariants) {
+            this.knownVariants.remove(hash);
+        }
+    }
+
+    /**
+     * Moves a fully written file into the store under the given name. Small blobs are appended to the pack store if
+     * it is enabled; anything else is renamed into place atomically, so a reader sees either nothing or the complete
+     * blob.
+     */
+    public void publish(Path temp, String name) throws IOException {
+        if (this.packStore.accepts(Files.size(temp))) {
+            this.packStore.put(name, temp);
+            Files.delete(temp);
+            return;
+        }
+        Path target = this.resolve(name);
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Path createTempFile(String prefix) throws IOException {
+        return Files.createTempFile(this.tempDirectory, prefix, ".tmp");
+    }
+
+    public Stream<Path> blobs() throws IOException {
+        return Files.walk(this.blobDirectory, 3).filter(Files::isRegularFile);
+    }
+
+    /**
+     * Creation time of every packed blob, keyed by name.
+     */
+    public Map<String, Long> packedBlobs() {
+        return this.packStore.entries();
+    }
+
+    public void deletePacked(String name) throws IOException {
+        this.forgetVariants(name.split("-")[0]);
+        this.packStore.delete(name);
+    }
+
+    public static String hash(byte[] bytes) {
+        return HexFormat.of().formatHex(newDigest().digest(bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.velialiyev.twitterclone.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Optional storage mode that appends small blobs to large segment files instead of creating one file per blob.
+ * An in-memory index maps each blob name to its place in a segment, and segments are memory-mapped for reads, so
+ * serving a packed picture costs neither an open nor a read call.
+ * <p>
+ * A record is {@code [name length:short][name][created:long][data length:int][data]}; a data length of -1 marks a
+ * deletion. The index is rebuilt by replaying the segments in order at startup. Segments whose records are mostly
+ * overwritten or deleted are compacted by copying the live records into the active segment, along with the
+ * tombstones of blobs that an older segment still holds a record of, so that those stay deleted after a restart.
+ */
+@Slf4j
+@Component
+public class PackStore {
+
+    // the active segment is mapped in this many steps as it fills up
+    private static final int MAP_STEPS = 16;
+
+    @Getter
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBlobSize;
+    private final long segmentSize;
+    private final double compactionThreshold;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+
+    public PackStore(@Value("${media.pack.enabled}") boolean enabled,
+                     @Value("${image-storage-dir}") String storageDirectory,
+                     @Value("${media.pack.max-blob-size}") DataSize maxBlobSize,
+                     @Value("${media.pack.segment-size}") DataSize segmentSize,
+                     @Value("${media.pack.compaction-threshold}") double compactionThreshold) {
+        this.enabled = enabled;
+        this.directory = Paths.get(storageDirectory, "packs");
+        this.maxBlobSize = maxBlobSize.toBytes();
+        this.segmentSize = segmentSize.toBytes();
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!this.enabled) {
+            return;
+        }
+        Files.createDirectories(this.directory);
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(".pack")).sorted().collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                Segment segment = new Segment(Integer.parseInt(name.substring(8, name.length() - 5)), file, this.mapStep());
+                this.segments.put(segment.id, segment);
+                this.replay(segment);
+            }
+        }
+        this.active = this.segments.isEmpty() ? this.newSegment(1) : this.segments.lastEntry().getValue();
+        this.segments.headMap(this.active.id).values().forEach(segment -> segment.sealed = true);
+        log.info("Opened {} pack segments holding {} blobs", this.segments.size(), this.index.size());
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (Segment segment : this.segments.values()) {
+            segment.channel.close();
+        }
+    }
+
+    public boolean accepts(long size) {
+        return this.enabled && size <= this.maxBlobSize;
+    }
+
+    public boolean contains(String name) {
+        return this.index.containsKey(name);
+    }
+
+    /**
+     * Returns a read-only view of the blob inside the mapped segment, or {@code null} if it is not packed.
+     */
+    public ByteBuffer read(String name) throws IOException {
+        Location location = this.index.get(name);
+        return location == null ? null : location.segment.slice(location.offset, location.length);
+    }
+
+    public synchronized void put(String name, Path file) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        this.index(name, this.append(name, System.currentTimeMillis(), data));
+    }
+
+    public synchronized void delete(String name) throws IOException {
+        Location removed = this.index.remove(name);
+        if (removed != null) {
+            removed.segment.deadBytes += removed.recordSize;
+            this.appendTombstone(name);
+        }
+    }
+
+    /**
+     * Restamps the creation time of a packed blob, so that the media sweep treats a blob that was just uploaded again
+     * as new. Only the index is updated: after a restart the blob has its original time again, by when whatever
+     * uploaded it has long referenced it. Returns {@code false} if the blob is not packed.
+     */
+    public synchronized boolean touch(String name) {
+        Location location = this.index.get(name);
+        if (location == null) {
+            return false;
+        }
+        this.index.put(name, new Location(location.segment, location.offset, location.length, System.currentTimeMillis(), location.recordSize));
+        return true;
+    }
+
+    /**
+     * Creation time of every packed blob, keyed by name.
+     */
+    public Map<String, Long> entries() {
+        return this.index.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().createdAt));
+    }
+
+    @Scheduled(fixedDelayString = "${media.pack.compaction-interval}", initialDelayString = "${media.pack.compaction-interval}")
+    public synchronized void compact() throws IOException {
+        if (!this.enabled) {
+            return;
+        }
+        for (Segment segment : this.segments.values().toArray(new Segment[0])) {
+            if (segment == this.active || segment.deadBytes < segment.size * this.compactionThreshold) {
+                continue;
+            }
+
+            segment.map();
+            for (Map.Entry<String, Location> entry : this.index.entrySet()) {
+                Location location = entry.getValue();
+                if (location.segment == segment) {
+                    this.index.put(entry.getKey(), this.append(entry.getKey(), location.createdAt,
+                            segment.slice(location.offset, location.length)));
+                }
+            }
+            for (String name : this.tombstonesToKeep(segment)) {
+                this.appendTombstone(name);
+            }
+
+            // Readers that already hold a slice keep using the mapping, which outlives the file on POSIX systems.
+            this.segments.remove(segment.id);
+            segment.channel.close();
+            Files.delete(segment.path);
+            log.info("Compacted pack segment {} ({} of {} bytes were dead)", segment.id, segment.deadBytes, segment.size);
+        }
+    }
+
+    // A tombstone only matters while an older segment holds a record it deletes, which replay would otherwise index.
+    // Blobs that were stored again since have a newer record that replay ends with.
+    private Set<String> tombstonesToKeep(Segment segment) throws IOException {
+        Set<String> pending = new HashSet<>(segment.tombstones);
+        pending.removeIf(this.index::containsKey);
+        Set<String> keep = new HashSet<>();
+        for (Segment older : this.segments.headMap(segment.id).values()) {
+            if (pending.isEmpty()) {
+                break;
+            }
+            scan(older, (name, createdAt, length, position, recordSize) -> {
+                if (length >= 0 && pending.remove(name)) {
+                    keep.add(name);
+                }
+            });
+        }
+        return keep;
+    }
+
+    private void appendTombstone(String name) throws IOException {
+        Location tombstone = this.append(name, System.currentTimeMillis(), null);
+        tombstone.segment.deadBytes += tombstone.recordSize;
+        tombstone.segment.tombstones.add(name);
+    }
+
+    private void index(String name, Location location) {
+        Location previous = this.index.put(name, location);
+        if (previous != null) {
+            previous.segment.deadBytes += previous.recordSize;
+        }
+    }
+
+    private Location append(String name, long createdAt, ByteBuffer data) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = data == null ? -1 : data.remaining();
+        ByteBuffer header = ByteBuffer.allocate(Short.BYTES + nameBytes.length + Long.BYTES + Integer.BYTES);
+        header.putShort((short) nameBytes.length).put(nameBytes).putLong(createdAt).putInt(length).flip();
+        int recordSize = header.remaining() + Math.max(length, 0);
+
+        if (this.active.size > 0 && this.active.size + recordSize > this.segmentSize) {
+            this.active.sealed = true;
+            this.active = this.newSegment(this.active.id + 1);
+        }
+
+        Segment segment = this.active;
+        long position = segment.size;
+        ByteBuffer[] buffers = data == null ? new ByteBuffer[]{header} : new ByteBuffer[]{header, data.duplicate()};
+        long written = 0;
+        segment.channel.position(position);
+        while (written < recordSize) {
+            written += segment.channel.write(buffers);
+        }
+        segment.channel.force(false);
+        segment.size += recordSize;
+        return new Location(segment, position + recordSize - Math.max(length, 0), Math.max(length, 0), createdAt, recordSize);
+    }
+
+    private void replay(Segment segment) throws IOException {
+        segment.size = scan(segment, (name, createdAt, length, position, recordSize) -> {
+            if (length < 0) {
+                Location removed = this.index.remove(name);
+                if (removed != null) {
+                    removed.segment.deadBytes += removed.recordSize;
+                }
+                segment.deadBytes += recordSize;
+                segment.tombstones.add(name);
+            } else {
+                this.index(name, new Location(segment, position + recordSize - length, length, createdAt, recordSize));
+            }
+        });
+
+        if (segment.size < segment.channel.size()) {
+            // a crash in the middle of an append left a partial record behind
+            log.warn("Truncating partial record at the end of pack segment {}", segment.id);
+            segment.channel.truncate(segment.size);
+        }
+    }
+
+    /**
+     * Reads the record headers of a segment in order, skipping the data, and returns where the last complete record
+     * ends.
+     */
+    private static long scan(Segment segment, RecordHandler handler) throws IOException {
+        long position = 0;
+        long fileSize = segment.channel.size();
+        ByteBuffer prefix = ByteBuffer.allocate(Short.BYTES);
+        while (position + Short.BYTES <= fileSize) {
+            prefix.clear();
+            segment.channel.read(prefix, position);
+            int nameLength = prefix.flip().getShort();
+            ByteBuffer header = ByteBuffer.allocate(nameLength + Long.BYTES + Integer.BYTES);
+            if (segment.channel.read(header, position + Short.BYTES) < header.capacity()) {
+                break;
+            }
+            header.flip();
+            byte[] nameBytes = new byte[nameLength];
+            header.get(nameBytes);
+            long createdAt = header.getLong();
+            int length = header.getInt();
+            int recordSize = Short.BYTES + header.capacity() + Math.max(length, 0);
+            if (position + recordSize > fileSize) {
+                break;
+            }
+
+            handler.record(new String(nameBytes, StandardCharsets.UTF_8), createdAt, length, position, recordSize);
+            position += recordSize;
+        }
+        return position;
+    }
+
+    private Segment newSegment(int id) throws IOException {
+        Segment segment = new Segment(id, this.directory.resolve(String.format("segment-%06d.pack", id)), this.mapStep());
+        this.segments.put(id, segment);
+        return segment;
+    }
+
+    private long mapStep() {
+        return Math.max(1, this.segmentSize / MAP_STEPS);
+    }
+
+    @FunctionalInterface
+    private interface RecordHandler {
+        void record(String name, long createdAt, int length, long position, int recordSize) throws IOException;
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final long mapStep;
+        // names deleted by the tombstones in this segment
+        private final Set<String> tombstones = new HashSet<>();
+        private volatile long size;
+        private long deadBytes;
+        private volatile boolean sealed;
+        private MappedByteBuffer mapped;
+
+        private Segment(int id, Path path, long mapStep) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.mapStep = mapStep;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        // The active segment keeps growing. Its mapping is kept until the records past it add up to a map step, and
+        // those are read from the file meanwhile; a sealed segment no longer grows and is mapped in full.
+        private synchronized ByteBuffer slice(long offset, int length) throws IOException {
+            long mappedSize = this.mapped == null ? 0 : this.mapped.capacity();
+            if (offset + length > mappedSize) {
+                if (!this.sealed && this.size - mappedSize < this.mapStep) {
+                    return this.readUnmapped(offset, length);
+                }
+                this.map();
+            }
+            return this.mapped.slice((int) offset, length).asReadOnlyBuffer();
+        }
+
+        private ByteBuffer readUnmapped(long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (this.channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Pack segment " + this.id + " ends before offset " + (offset + length));
+                }
+            }
+            return buffer.flip().asReadOnlyBuffer();
+        }
+
+        private synchronized void map() throws IOException {
+            this.mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+        }
+    }
+
+    private static class Location {
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+        private final long createdAt;
+        private final int recordSize;
+
+        private Location(Segment segment, long offset, int length, long createdAt, int recordSize) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.createdAt = createdAt;
+            this.recordSize = recordSize;
+        }
+    }
+}
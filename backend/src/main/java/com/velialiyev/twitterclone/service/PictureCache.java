@@ -0,0 +1,88 @@
+package com.velialiyev.twitterclone.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory-budgeted LRU cache of picture bytes held in direct buffers, outside the Java heap. Entries are keyed by
+ * blob name, the content hash plus the variant size, so a blob is cached once however many users show it, such as
+ * the default pictures, and a new upload needs no eviction: it has a new name, and the old entry ages out.
+ */
+@Component
+public class PictureCache {
+
+    private final long budget;
+    private final long maxEntrySize;
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long size;
+
+    public PictureCache(@Value("${media.cache.max-size}") DataSize budget,
+                        @Value("${media.cache.max-entry-size}") DataSize maxEntrySize,
+                        MeterRegistry meterRegistry) {
+        this.budget = budget.toBytes();
+        this.maxEntrySize = maxEntrySize.toBytes();
+
+        Gauge.builder("media.cache.size", this, PictureCache::size).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("media.cache.budget", this, cache -> cache.budget).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("media.cache.hit.ratio", this, PictureCache::hitRatio).register(meterRegistry);
+        FunctionCounter.builder("media.cache.requests", this.hits, AtomicLong::get).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("media.cache.requests", this.misses, AtomicLong::get).tag("result", "miss").register(meterRegistry);
+    }
+
+    public ByteBuffer get(String blob) {
+        synchronized (this.entries) {
+            ByteBuffer buffer = this.entries.get(blob);
+            if (buffer != null) {
+                this.hits.incrementAndGet();
+                return buffer.duplicate();
+            }
+        }
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    public boolean isCacheable(long length) {
+        return length <= this.maxEntrySize && length <= this.budget;
+    }
+
+    public void put(String blob, ByteBuffer buffer) {
+        if (!this.isCacheable(buffer.remaining())) {
+            return;
+        }
+        synchronized (this.entries) {
+            ByteBuffer previous = this.entries.put(blob, buffer.asReadOnlyBuffer());
+            if (previous != null) {
+                this.size -= previous.capacity();
+            }
+            this.size += buffer.capacity();
+
+            var eldest = this.entries.entrySet().iterator();
+            while (this.size > this.budget && eldest.hasNext()) {
+                this.size -= eldest.next().getValue().capacity();
+                eldest.remove();
+            }
+        }
+    }
+
+    public long size() {
+        synchronized (this.entries) {
+            return this.size;
+        }
+    }
+
+    public double hitRatio() {
+        long hits = this.hits.get();
+        long total = hits + this.misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
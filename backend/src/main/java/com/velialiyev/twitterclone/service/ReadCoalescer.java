@@ -0,0 +1,194 @@
+package com.velialiyev.twitterclone.service;
+
+import com.velialiyev.twitterclone.datasource.ReplicaReads;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shares identical concurrent reads. While a load for a key is in flight, other callers wait for its result instead
+ * of running the same query, and the result is kept for a short time to serve the callers that arrive just after.
+ * <p>
+ * Entries are refreshed early with probabilistic early expiration (XFetch): each read refreshes with a probability
+ * that grows as expiry approaches, weighted by how long the last load took. A single caller usually refreshes
+ * slightly ahead of expiry while the others keep getting the current value, so an expiring hot key does not send
+ * every waiting request to the database at once.
+ * <p>
+ * Callers pass a version that changes when the underlying data changes, for example a {@link FeedVersions} ETag;
+ * the time-to-live only bounds how long an unchanged result is reused. Each key holds the result of one version, so
+ * a result loaded for a new version replaces the old one instead of leaving it behind until it expires. The cache
+ * is bounded both by entries and by weight, the number of elements of the collections it holds, and expired entries
+ * are swept on store about once per time-to-live.
+ * <p>
+ * A result read from a replica that may be behind the version is handed to the callers waiting for it but not kept,
+ * and those callers see the read in their {@link ReplicaReads} as well.
+ */
+@Component
+public class ReadCoalescer {
+
+    private final long ttlNanos;
+    private final double beta;
+    private final int maxEntries;
+    private final long maxWeight;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    private volatile long nextSweep = System.nanoTime();
+    private final Map<String, Load> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public ReadCoalescer(@Value("${coalescing.ttl}") Duration ttl,
+                         @Value("${coalescing.beta}") double beta,
+                         @Value("${coalescing.max-entries}") int maxEntries,
+                         @Value("${coalescing.max-weight}") long maxWeight,
+                         MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.beta = beta;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+
+        FunctionCounter.builder("coalescing.requests", this.hits, AtomicLong::get).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("coalescing.requests", this.coalesced, AtomicLong::get).tag("result", "coalesced").register(meterRegistry);
+        FunctionCounter.builder("coalescing.requests", this.loads, AtomicLong::get).tag("result", "load").register(meterRegistry);
+    }
+
+    public <T> T get(String key, Supplier<T> loader) {
+        return this.get(key, "", loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, String version, Supplier<T> loader) {
+        long now = System.nanoTime();
+        Entry entry = this.entries.get(key);
+        if (entry != null && !entry.version.equals(version)) {
+            entry = null;
+        }
+        if (entry != null && !this.shouldRefresh(entry, now)) {
+            this.hits.incrementAndGet();
+            return (T) entry.value;
+        }
+
+        Load load = new Load();
+        String versionedKey = key + "@" + version;
+        Load running = this.inFlight.putIfAbsent(versionedKey, load);
+        if (running != null) {
+            // someone is already refreshing; a still valid value beats waiting for it
+            if (entry != null && now < entry.expiresAt) {
+                this.hits.incrementAndGet();
+                return (T) entry.value;
+            }
+            this.coalesced.incrementAndGet();
+            Object value = join(running);
+            if (running.behind) {
+                ReplicaReads.markBehind();
+            }
+            return (T) value;
+        }
+
+        this.loads.incrementAndGet();
+        try (ReplicaReads replicaReads = ReplicaReads.track()) {
+            long start = System.nanoTime();
+            T value = loader.get();
+            long end = System.nanoTime();
+            load.behind = replicaReads.isBehind();
+            if (!load.behind) {
+                this.store(key, new Entry(value, version, weigh(value), end - start, end + this.ttlNanos));
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(versionedKey, load);
+        }
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public long weight() {
+        return this.weight.get();
+    }
+
+    // XFetch: refresh once now - delta * beta * ln(random) passes the expiry; ln(random) is negative
+    private boolean shouldRefresh(Entry entry, long now) {
+        double random = ThreadLocalRandom.current().nextDouble();
+        return now - entry.loadNanos * this.beta * Math.log(random) >= entry.expiresAt;
+    }
+
+    private void store(String key, Entry entry) {
+        long now = System.nanoTime();
+        if (now - this.nextSweep >= 0 || this.entries.size() >= this.maxEntries || this.weight.get() + entry.weight > this.maxWeight) {
+            this.sweep(now);
+        }
+        Entry replaced = this.entries.get(key);
+        long freed = replaced == null ? 0 : replaced.weight;
+        if (this.entries.size() - (replaced == null ? 0 : 1) >= this.maxEntries || this.weight.get() - freed + entry.weight > this.maxWeight) {
+            return;
+        }
+        replaced = this.entries.put(key, entry);
+        this.weight.addAndGet(entry.weight - (replaced == null ? 0 : replaced.weight));
+    }
+
+    private void sweep(long now) {
+        this.nextSweep = now + this.ttlNanos;
+        this.entries.forEach((key, entry) -> {
+            if (entry.expiresAt <= now && this.entries.remove(key, entry)) {
+                this.weight.addAndGet(-entry.weight);
+            }
+        });
+    }
+
+    private static long weigh(Object value) {
+        return value instanceof Collection ? Math.max(1, ((Collection<?>) value).size()) : 1;
+    }
+
+    private static Object join(CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Load extends CompletableFuture<Object> {
+        private volatile boolean behind;
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final String version;
+        private final long weight;
+        private final long loadNanos;
+        private final long expiresAt;
+
+        private Entry(Object value, String version, long weight, long loadNanos, long expiresAt) {
+            this.value = value;
+            this.version = version;
+            this.weight = weight;
+            this.loadNanos = loadNanos;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
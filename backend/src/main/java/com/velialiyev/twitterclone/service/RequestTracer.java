@@ -0,0 +1,214 @@
+package com.velialiyev.twitterclone.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the phases of the request running on the current thread, such as JWT decoding, repository calls, mapping
+ * and serialization. Every request gets per-phase totals, sent back in a {@code Server-Timing} header where that is
+ * enabled, and a sampled share of requests also keeps one span per phase for export. Phases opened outside a request, or on other threads, are
+ * not recorded.
+ */
+public class RequestTracer implements AutoCloseable {
+
+    private static final Phase NOT_TRACED = () -> {
+    };
+
+    private final ThreadLocal<Trace> current = new ThreadLocal<>();
+    private final double sampleRate;
+    private final int maxSpans;
+    private final SpanExporter spanExporter;
+
+    /**
+     * @param spanExporter receives the spans of sampled requests, or {@code null} to only time them
+     */
+    public RequestTracer(double sampleRate, int maxSpans, SpanExporter spanExporter) {
+        this.sampleRate = sampleRate;
+        this.maxSpans = maxSpans;
+        this.spanExporter = spanExporter;
+    }
+
+    /**
+     * @param serverTiming whether the timings are sent back in a {@code Server-Timing} header
+     */
+    public Trace start(boolean serverTiming) {
+        boolean sampled = this.spanExporter != null && ThreadLocalRandom.current().nextDouble() < this.sampleRate;
+        Trace trace = new Trace(sampled ? this.maxSpans : 0, serverTiming);
+        this.current.set(trace);
+        return trace;
+    }
+
+    /**
+     * Ends the trace started on this thread and exports it if it was sampled.
+     */
+    public void finish(Trace trace, String name, Map<String, String> tags) {
+        this.current.remove();
+        trace.durationNanos = System.nanoTime() - trace.startNanos;
+        if (trace.maxSpans > 0) {
+            this.spanExporter.export(trace, name, tags);
+        }
+    }
+
+    public boolean isTracing() {
+        return this.current.get() != null;
+    }
+
+    public boolean isServerTiming() {
+        Trace trace = this.current.get();
+        return trace != null && trace.serverTiming;
+    }
+
+    /**
+     * Opens a phase that ends when the returned handle is closed. A phase opened again while it is still open, as
+     * in recursive mapping, counts once.
+     */
+    public Phase phase(String name) {
+        Trace trace = this.current.get();
+        return trace == null ? NOT_TRACED : trace.open(name);
+    }
+
+    /**
+     * Records a phase that ended just now, for callers that measured it themselves.
+     */
+    public void record(String name, long durationNanos) {
+        Trace trace = this.current.get();
+        if (trace != null) {
+            long end = System.nanoTime();
+            trace.add(name, end - durationNanos, end);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (this.spanExporter != null) {
+            this.spanExporter.close();
+        }
+    }
+
+    public interface Phase extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static class Trace {
+
+        private final String traceId = hex(ThreadLocalRandom.current().nextLong()) + hex(ThreadLocalRandom.current().nextLong());
+        private final String spanId = hex(ThreadLocalRandom.current().nextLong());
+        private final long startMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        private final long startNanos = System.nanoTime();
+        private final Map<String, long[]> totals = new LinkedHashMap<>();
+        private final Map<String, Integer> open = new HashMap<>();
+        private final List<Span> spans = new ArrayList<>();
+        private final int maxSpans;
+        private final boolean serverTiming;
+        private long durationNanos;
+
+        Trace(int maxSpans, boolean serverTiming) {
+            this.maxSpans = maxSpans;
+            this.serverTiming = serverTiming;
+        }
+
+        private Phase open(String name) {
+            if (this.open.merge(name, 1, Integer::sum) > 1) {
+                return () -> this.open.merge(name, -1, Integer::sum);
+            }
+            long start = System.nanoTime();
+            return () -> {
+                this.open.remove(name);
+                this.add(name, start, System.nanoTime());
+            };
+        }
+
+        private void add(String name, long start, long end) {
+            long[] total = this.totals.computeIfAbsent(name, key -> new long[2]);
+            total[0] += end - start;
+            total[1]++;
+            if (this.spans.size() < this.maxSpans) {
+                this.spans.add(new Span(hex(ThreadLocalRandom.current().nextLong()), name,
+                        this.startMicros + TimeUnit.NANOSECONDS.toMicros(start - this.startNanos),
+                        Math.max(1, TimeUnit.NANOSECONDS.toMicros(end - start))));
+            }
+        }
+
+        /**
+         * The {@code Server-Timing} header value: one entry per phase with its total time in milliseconds and how
+         * often it ran, followed by the time since the request started. Phases can overlap, repository calls made
+         * while mapping count towards both.
+         */
+        public String serverTiming() {
+            StringBuilder header = new StringBuilder();
+            this.totals.forEach((name, total) -> header.append(name)
+                    .append(";dur=").append(millis(total[0]))
+                    .append(total[1] > 1 ? ";desc=\"" + total[1] + " calls\"" : "")
+                    .append(", "));
+            return header.append("total;dur=").append(millis(System.nanoTime() - this.startNanos)).toString();
+        }
+
+        public String traceId() {
+            return this.traceId;
+        }
+
+        public String spanId() {
+            return this.spanId;
+        }
+
+        public long startMicros() {
+            return this.startMicros;
+        }
+
+        public long durationMicros() {
+            return Math.max(1, TimeUnit.NANOSECONDS.toMicros(this.durationNanos));
+        }
+
+        public List<Span> spans() {
+            return Collections.unmodifiableList(this.spans);
+        }
+
+        private static String millis(long nanos) {
+            return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+        }
+    }
+
+    public static class Span {
+
+        private final String id;
+        private final String name;
+        private final long startMicros;
+        private final long durationMicros;
+
+        Span(String id, String name, long startMicros, long durationMicros) {
+            this.id = id;
+            this.name = name;
+            this.startMicros = startMicros;
+            this.durationMicros = durationMicros;
+        }
+
+        public String id() {
+            return this.id;
+        }
+
+        public String name() {
+            return this.name;
+        }
+
+        public long startMicros() {
+            return this.startMicros;
+        }
+
+        public long durationMicros() {
+            return this.durationMicros;
+        }
+    }
+
+    private static String hex(long value) {
+        String hex = Long.toHexString(value);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+}
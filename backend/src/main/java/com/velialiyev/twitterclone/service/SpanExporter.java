@@ -0,0 +1,143 @@
+package com.velialiyev.twitterclone.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the spans of sampled requests in the Zipkin v2 JSON format, one span per line to a local file and/or in
+ * batches to a collector such as {@code http://localhost:9411/api/v2/spans}. Export runs on a background thread
+ * behind a bounded queue, so a slow collector drops traces instead of holding up requests.
+ */
+@Slf4j
+public class SpanExporter implements AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int BATCH_SIZE = 64;
+
+    private final String serviceName;
+    private final Path file;
+    private final URI endpoint;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private final BlockingQueue<List<Map<String, Object>>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param file     file to append spans to, or {@code null}
+     * @param endpoint collector to post spans to, or {@code null}
+     */
+    public SpanExporter(String serviceName, Path file, URI endpoint, ObjectMapper objectMapper) {
+        this.serviceName = serviceName;
+        this.file = file;
+        this.endpoint = endpoint;
+        this.objectMapper = objectMapper;
+        this.worker = new Thread(this::run, "span-exporter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    void export(RequestTracer.Trace trace, String name, Map<String, String> tags) {
+        List<Map<String, Object>> spans = new ArrayList<>(trace.spans().size() + 1);
+        Map<String, Object> root = this.span(trace, trace.spanId(), name, trace.startMicros(), trace.durationMicros());
+        root.put("kind", "SERVER");
+        root.put("tags", tags);
+        spans.add(root);
+        for (RequestTracer.Span span : trace.spans()) {
+            Map<String, Object> child = this.span(trace, span.id(), span.name(), span.startMicros(), span.durationMicros());
+            child.put("parentId", trace.spanId());
+            spans.add(child);
+        }
+        if (!this.queue.offer(spans) && this.dropped.incrementAndGet() % QUEUE_CAPACITY == 1) {
+            log.warn("Span export is falling behind, {} traces dropped so far", this.dropped.get());
+        }
+    }
+
+    private Map<String, Object> span(RequestTracer.Trace trace, String id, String name, long timestamp, long duration) {
+        Map<String, Object> span = new LinkedHashMap<>();
+        span.put("traceId", trace.traceId());
+        span.put("id", id);
+        span.put("name", name);
+        span.put("timestamp", timestamp);
+        span.put("duration", duration);
+        span.put("localEndpoint", Map.of("serviceName", this.serviceName));
+        return span;
+    }
+
+    private void run() {
+        List<List<Map<String, Object>>> traces = new ArrayList<>();
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                List<Map<String, Object>> first = this.queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                traces.add(first);
+                this.queue.drainTo(traces, BATCH_SIZE - 1);
+                List<Map<String, Object>> spans = new ArrayList<>();
+                traces.forEach(spans::addAll);
+                this.write(spans);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not export {} traces: {}", traces.size(), e.toString());
+            } finally {
+                traces.clear();
+            }
+        }
+    }
+
+    private void write(List<Map<String, Object>> spans) throws IOException, InterruptedException {
+        if (this.file != null) {
+            try (BufferedWriter writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Map<String, Object> span : spans) {
+                    writer.write(this.objectMapper.writeValueAsString(span));
+                    writer.newLine();
+                }
+            }
+        }
+        if (this.endpoint != null) {
+            HttpResponse<Void> response = this.httpClient.send(HttpRequest.newBuilder(this.endpoint)
+                            .timeout(Duration.ofSeconds(5))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(this.objectMapper.writeValueAsBytes(spans)))
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 300) {
+                throw new IOException("collector answered " + response.statusCode());
+            }
+        }
+    }
+
+    /**
+     * Exports what is still queued, waiting a few seconds at most.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        this.running = false;
+        this.worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+}
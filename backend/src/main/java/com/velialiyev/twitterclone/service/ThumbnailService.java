@@ -0,0 +1,133 @@
+package com.velialiyev.twitterclone.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Generates the fixed-size variants of an uploaded picture off the request thread. The original is decoded once and
+ * every variant is re-encoded as a plain JPEG, which also drops any EXIF or other metadata the upload carried.
+ */
+@Slf4j
+@Service
+public class ThumbnailService {
+
+    private static final int MAX_UNDECODABLE = 1000;
+
+    private final MediaStore mediaStore;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // LRU set of pictures that could not be decoded, so requests for their variants are not queued again
+    private final LinkedHashMap<String, Boolean> undecodable = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Decoding is CPU and memory heavy, so both the pool and its queue are capped and overflow is rejected.
+    public ThumbnailService(MediaStore mediaStore,
+                            @Value("${media.thumbnail.threads}") int threads,
+                            @Value("${media.thumbnail.queue-capacity}") int queueCapacity) {
+        this.mediaStore = mediaStore;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("thumbnail-"));
+    }
+
+    /**
+     * Queues variant generation unless it is already queued. When the queue is full the request is dropped; the
+     * original keeps being served and the next request for a missing variant asks again. Returns {@code false} if
+     * the picture is known not to be decodable, so no variants will ever exist.
+     */
+    public boolean requestVariants(String hash) {
+        synchronized (this.undecodable) {
+            if (this.undecodable.get(hash) != null) {
+                return false;
+            }
+        }
+        if (!this.pending.add(hash)) {
+            return true;
+        }
+        try {
+            this.executor.execute(() -> {
+                try {
+                    this.generateVariants(hash);
+                } finally {
+                    this.pending.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.pending.remove(hash);
+            log.debug("Thumbnail queue is full, skipping picture {}", hash);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    void generateVariants(String hash) {
+        try {
+            if (this.mediaStore.getVariantSizes().stream().allMatch(size -> this.mediaStore.exists(MediaStore.variantName(hash, size)))) {
+                return;
+            }
+
+            BufferedImage original;
+            try (InputStream content = this.mediaStore.openStream(hash)) {
+                original = ImageIO.read(content);
+            }
+            if (original == null) {
+                log.warn("Picture {} is not a decodable image, serving the original only", hash);
+                synchronized (this.undecodable) {
+                    this.undecodable.put(hash, Boolean.TRUE);
+                    var eldest = this.undecodable.entrySet().iterator();
+                    while (this.undecodable.size() > MAX_UNDECODABLE && eldest.hasNext()) {
+                        eldest.next();
+                        eldest.remove();
+                    }
+                }
+                return;
+            }
+
+            for (Integer size : this.mediaStore.getVariantSizes()) {
+                Path temp = this.mediaStore.createTempFile(hash);
+                try {
+                    ImageIO.write(this.scale(original, size), "jpg", temp.toFile());
+                    this.mediaStore.publish(temp, MediaStore.variantName(hash, size));
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not generate variants for picture {}", hash, e);
+        }
+    }
+
+    // Fits the image into a size x size box, never upscaling, on an opaque canvas since JPEG has no alpha.
+    private BufferedImage scale(BufferedImage original, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(original.getWidth(), original.getHeight()));
+        int width = Math.max(1, (int) Math.round(original.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(original.getHeight() * ratio));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
@@ -0,0 +1,168 @@
+package com.velialiyev.twitterclone.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.dto.UserDto;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.entity.TweetType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+
+/**
+ * LRU cache of mapped tweets together with their serialized JSON. Entries are keyed by tweet ID and carry a version
+ * derived from everything the JSON shows (text, counters, author names and the quoted tweet), so a stale entry is
+ * never served even if an invalidation was missed. A hit skips mapping; when the cached DTO is then written by the
+ * {@link #module() module}, its bytes are spliced into the response instead of being serialized again.
+ * <p>
+ * Cached DTOs are shared between requests and must not be modified.
+ */
+@Component
+public class TweetFragmentCache {
+
+    private final int maxEntries;
+    private final LinkedHashMap<Long, Fragment> fragments;
+
+    public TweetFragmentCache(@Value("${tweet.fragment-cache.max-entries}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.fragments = new LinkedHashMap<>(256, 0.75f, true);
+    }
+
+    /**
+     * Version of the JSON a tweet maps to, computed from the entity and the profiles of its authors without mapping
+     * it. The version holds the shown values themselves rather than a hash of them, so two different tweets never
+     * share a version.
+     */
+    public static String version(TweetEntity tweet, Function<TweetEntity, UserDto> authors) {
+        UserDto author = authors.apply(tweet);
+        String version = tweet.getReplyCounter() + ":" + tweet.getRetweetCounter() + ":" + tweet.getLikeCounter()
+                + field(tweet.getText()) + field(author.getFirstName()) + field(author.getLastName()) + field(author.getUsername());
+        if (tweet.getType() == TweetType.QUOTE && tweet.getTweet() != null) {
+            version += "/" + tweet.getTweet().getId() + "@" + version(tweet.getTweet(), authors);
+        }
+        return version;
+    }
+
+    // length-prefixed, so a value containing the separator cannot be read as the start of the next one
+    private static String field(String value) {
+        return value == null ? "|" : "|" + value.length() + ":" + value;
+    }
+
+    public TweetResponseDto get(Long id, String version) {
+        synchronized (this.fragments) {
+            Fragment fragment = this.fragments.get(id);
+            return fragment != null && fragment.version.equals(version) ? fragment.tweet : null;
+        }
+    }
+
+    public void put(Long id, String version, TweetResponseDto tweet) {
+        synchronized (this.fragments) {
+            this.fragments.put(id, new Fragment(version, tweet));
+            var eldest = this.fragments.entrySet().iterator();
+            while (this.fragments.size() > this.maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    public void invalidate(Long id) {
+        synchronized (this.fragments) {
+            this.fragments.remove(id);
+        }
+    }
+
+    public int size() {
+        synchronized (this.fragments) {
+            return this.fragments.size();
+        }
+    }
+
+    /**
+     * Jackson module that writes cached tweets from their stored JSON. The JSON is produced the first time a cached
+     * DTO is written, and only plain, non-indented JSON output is spliced; anything else is serialized as usual.
+     */
+    public SimpleModule module() {
+        SimpleModule module = new SimpleModule("TweetFragmentModule");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription description, JsonSerializer<?> serializer) {
+                if (description.getBeanClass() == TweetResponseDto.class) {
+                    @SuppressWarnings("unchecked")
+                    JsonSerializer<TweetResponseDto> beanSerializer = (JsonSerializer<TweetResponseDto>) serializer;
+                    return new FragmentSerializer(beanSerializer);
+                }
+                return serializer;
+            }
+        });
+        return module;
+    }
+
+    private Fragment fragmentOf(TweetResponseDto tweet) {
+        synchronized (this.fragments) {
+            Fragment fragment = this.fragments.get(tweet.getId());
+            return fragment != null && fragment.tweet == tweet ? fragment : null;
+        }
+    }
+
+    private class FragmentSerializer extends StdSerializer<TweetResponseDto> implements ResolvableSerializer {
+
+        private final JsonSerializer<TweetResponseDto> beanSerializer;
+
+        private FragmentSerializer(JsonSerializer<TweetResponseDto> beanSerializer) {
+            super(TweetResponseDto.class);
+            this.beanSerializer = beanSerializer;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (this.beanSerializer instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) this.beanSerializer).resolve(provider);
+            }
+        }
+
+        @Override
+        public void serialize(TweetResponseDto tweet, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            Fragment fragment = generator instanceof JsonGeneratorImpl && generator.getPrettyPrinter() == null && generator.getCodec() != null
+                    ? TweetFragmentCache.this.fragmentOf(tweet)
+                    : null;
+            if (fragment == null) {
+                this.beanSerializer.serialize(tweet, generator, provider);
+                return;
+            }
+
+            SerializedString json = fragment.json;
+            if (json == null) {
+                StringWriter writer = new StringWriter();
+                try (JsonGenerator fragmentGenerator = generator.getCodec().getFactory().createGenerator(writer)) {
+                    this.beanSerializer.serialize(tweet, fragmentGenerator, provider);
+                }
+                json = new SerializedString(writer.toString());
+                fragment.json = json;
+            }
+            generator.writeRawValue(json);
+        }
+    }
+
+    private static class Fragment {
+        private final String version;
+        private final TweetResponseDto tweet;
+        private volatile SerializedString json;
+
+        private Fragment(String version, TweetResponseDto tweet) {
+            this.version = version;
+            this.tweet = tweet;
+        }
+    }
+}
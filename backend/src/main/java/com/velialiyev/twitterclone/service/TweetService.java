@@ -7,8 +7,10 @@ import com.velialiyev.twitterclone.dto.UserDto;
 import com.velialiyev.twitterclone.entity.*;
 import com.velialiyev.twitterclone.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.util.List;
@@ -25,6 +27,11 @@ public class TweetService {
     private final RetweetRepository retweetRepository;
     private final UserRepository userRepository;
     private final BookmarkRepository bookmarkRepository;
+    private final TweetFragmentCache tweetFragmentCache;
+    private final FeedVersions feedVersions;
+    private final RequestTracer requestTracer;
+    private final UserProfileCache userProfileCache;
+    private final CacheInvalidationLog cacheInvalidationLog;
 
     @Transactional
     public void tweet(TweetDto tweetDto) {
@@ -36,18 +43,24 @@ public class TweetService {
 
             if(type == TweetType.REPLY){
                 tweet.setReplyCounter(tweet.getReplyCounter() + 1);
+                this.invalidateTweet(tweet.getId());
                 this.createTweet(user, tweetDto.getText(), tweet, type);
+                this.feedVersions.bump(FeedVersions.tab("replies", user.getUsername()), FeedVersions.replies(tweet.getId()));
             }
 
             else if(type == TweetType.QUOTE){
                 tweet.setRetweetCounter(tweet.getRetweetCounter() + 1);
+                this.invalidateTweet(tweet.getId());
                 this.createTweet(user, tweetDto.getText(), tweet, type);
+                this.feedVersions.bump(FeedVersions.GLOBAL, FeedVersions.tab("retweets", user.getUsername()));
             }
             this.tweetRepository.save(tweet);
+            this.feedVersions.bump(this.feedsShowing(tweet));
         }
 
         else{
             this.createTweet(user, tweetDto.getText(), null, type);
+            this.feedVersions.bump(FeedVersions.GLOBAL, FeedVersions.tab("tweets", user.getUsername()));
         }
 
     }
@@ -80,8 +93,20 @@ public class TweetService {
                 parentTweet.setRetweetCounter(parentTweet.getRetweetCounter() - 1);
             }
             this.tweetRepository.save(parentTweet);
+            this.invalidateTweet(parentTweet.getId());
+            this.feedVersions.bump(this.feedsShowing(parentTweet));
         }
+        // replies and quotes are removed along with the tweet; liked, retweeted and bookmarked tweets cannot be deleted
+        this.bumpFeedsShowingThread(tweet);
         this.tweetRepository.deleteById(id);
+        this.invalidateTweet(id);
+    }
+
+    private void bumpFeedsShowingThread(TweetEntity tweet) {
+        this.feedVersions.bump(this.feedsShowing(tweet));
+        for (TweetEntity reply : tweet.getReplies()) {
+            this.bumpFeedsShowingThread(reply);
+        }
     }
 
     @Transactional
@@ -89,6 +114,9 @@ public class TweetService {
         UserEntity user = this.authenticationService.getUserFromJwt();
         TweetEntity tweet = this.tweetRepository.findById(likeRetweetBookmarkDto.getTweetId()).orElseThrow();
         Optional<LikeEntity> optional = this.likeRepository.findByUserAndTweet(user, tweet);
+        this.invalidateTweet(tweet.getId());
+        this.feedVersions.bump(FeedVersions.tab("likes", user.getUsername()));
+        this.feedVersions.bump(this.feedsShowing(tweet));
 
         if(optional.isPresent()){
             tweet.setLikeCounter(tweet.getLikeCounter() - 1);
@@ -112,6 +140,9 @@ public class TweetService {
         UserEntity user = this.authenticationService.getUserFromJwt();
         TweetEntity tweet = this.tweetRepository.findById(likeRetweetBookmarkDto.getTweetId()).orElseThrow();
         Optional<RetweetEntity> retweet = this.retweetRepository.findByUserAndTweet(user, tweet);
+        this.invalidateTweet(tweet.getId());
+        this.feedVersions.bump(FeedVersions.GLOBAL, FeedVersions.tab("retweets", user.getUsername()));
+        this.feedVersions.bump(this.feedsShowing(tweet));
         if(retweet.isPresent()){
             tweet.setRetweetCounter(tweet.getRetweetCounter() - 1);
             this.retweetRepository.delete(retweet.get());
@@ -141,7 +172,7 @@ public class TweetService {
         return replies.stream().map(this::mapTweetToDto).collect(Collectors.toList());
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public TweetResponseDto getTweet(Long id) {
         return this.mapTweetToDto(this.tweetRepository.findById(id).orElseThrow());
     }
@@ -153,7 +184,7 @@ public class TweetService {
         return this.likeRepository.findByUserAndTweet(user, tweet).isPresent();
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<TweetResponseDto> getAll() {
         List<TweetResponseDto> tweets = this.tweetRepository.findAll().stream()
                 .filter(tweet-> tweet.getType() != TweetType.REPLY)
@@ -163,16 +194,16 @@ public class TweetService {
         return tweets;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<TweetResponseDto> getTweetsByUsername(String username) {
-        UserEntity user = this.userRepository.findByUsername(username).orElseThrow();
+        UserEntity user = this.userReference(username);
         return this.tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow().stream().map(this::mapTweetToDto).collect(Collectors.toList());
 
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<TweetResponseDto> getRetweetsByUsername(String username) {
-        UserEntity user = this.userRepository.findByUsername(username).orElseThrow();
+        UserEntity user = this.userReference(username);
         List<TweetResponseDto> tweetResponseDtos = this.tweetRepository.findAllByUserAndType(user, TweetType.QUOTE)
                 .orElseThrow().stream().map(this::mapTweetToDto).collect(Collectors.toList());
         tweetResponseDtos.addAll(this.retweetRepository.findAllByUser(user).orElseThrow().stream().map(this::mapRetweetToDto).collect(Collectors.toList()));
@@ -181,70 +212,124 @@ public class TweetService {
 
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<TweetResponseDto> getRepliesByUsername(String username) {
-        UserEntity user = this.userRepository.findByUsername(username).orElseThrow();
+        UserEntity user = this.userReference(username);
         return this.tweetRepository.findAllByUserAndType(user, TweetType.REPLY).orElseThrow().stream().map(this::mapTweetToDto).collect(Collectors.toList());
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<TweetResponseDto> getLikedByUsername(String username) {
-        UserEntity user = this.userRepository.findByUsername(username).orElseThrow();
+        UserEntity user = this.userReference(username);
         List<LikeEntity> likes = this.likeRepository.findAllByUser(user).orElseThrow();
 
         return likes.stream().map(LikeEntity::getTweet).map(this::mapTweetToDto).collect(Collectors.toList());
     }
 
-    private TweetResponseDto mapTweetToDto(TweetEntity entity){
-
-        UserEntity user = entity.getUser();
-        TweetResponseDto tweetResponseDto = TweetResponseDto.builder()
-                .id(entity.getId())
-                .firstName(user.getFirstName())
-                .lastName(user.getLastName())
-                .username(user.getUsername())
-                .duration(null)
-                .tweetText(entity.getText())
-                .replyCounter(entity.getReplyCounter())
-                .retweetCounter(entity.getRetweetCounter())
-                .likeCounter(entity.getLikeCounter())
-                .build();
-
-        if(entity.getType() == TweetType.QUOTE && entity.getTweet() != null){
-            tweetResponseDto.setQuote(mapTweetToDto(entity.getTweet()));
+    // other instances hold the tweet in their second-level cache
+    private void invalidateTweet(Long id) {
+        this.tweetFragmentCache.invalidate(id);
+        this.cacheInvalidationLog.tweet(id);
+    }
+
+    /**
+     * The feeds that show the tweet by its type: the global feed unless it is a reply, its author's tab for its type,
+     * its parent's replies if it is one, and its own page. Other feeds that show it, such as the tabs of users who
+     * liked, retweeted or bookmarked it and lists with a quote of it, see the bump of its own page in their ETag.
+     */
+    private String[] feedsShowing(TweetEntity tweet) {
+        String author = this.author(tweet).getUsername();
+        switch (tweet.getType()) {
+            case REPLY:
+                return new String[]{FeedVersions.tab("replies", author), FeedVersions.replies(tweet.getTweet().getId()),
+                        FeedVersions.tweet(tweet.getId())};
+            case QUOTE:
+                return new String[]{FeedVersions.GLOBAL, FeedVersions.tab("retweets", author), FeedVersions.tweet(tweet.getId())};
+            default:
+                return new String[]{FeedVersions.GLOBAL, FeedVersions.tab("tweets", author), FeedVersions.tweet(tweet.getId())};
         }
+    }
 
-        return tweetResponseDto;
+    // the tabs query by user ID, so a reference from the cached profile spares loading the user
+    private UserEntity userReference(String username) {
+        UserDto profile = this.userProfileCache.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No user named " + username));
+        return this.userRepository.getReferenceById(profile.getId());
     }
 
-    private TweetResponseDto mapRetweetToDto(RetweetEntity retweetEntity) {
-        TweetEntity tweet = retweetEntity.getTweet();
-        UserEntity publisher = tweet.getUser();
-
-        UserDto retweeter = UserDto.builder()
-                .firstName(retweetEntity.getUser().getFirstName())
-                .lastName(retweetEntity.getUser().getLastName())
-                .username(retweetEntity.getUser().getUsername())
-                .build();
-
-        TweetResponseDto tweetResponseDto = TweetResponseDto.builder()
-                .id(tweet.getId())
-                .firstName(publisher.getFirstName())
-                .lastName(publisher.getLastName())
-                .username(publisher.getUsername())
-                .duration(null)
-                .tweetText(tweet.getText())
-                .replyCounter(tweet.getReplyCounter())
-                .retweetCounter(tweet.getRetweetCounter())
-                .likeCounter(tweet.getLikeCounter())
-                .retweetedBy(retweeter)
-                .build();
-
-        if(retweetEntity.getTweet().getType() == TweetType.QUOTE){
-            tweetResponseDto.setQuote(mapTweetToDto(retweetEntity.getTweet().getTweet()));
+    // reading the ID does not initialize a lazy author
+    private UserDto author(TweetEntity tweet) {
+        return this.userProfileCache.findById(tweet.getUser().getId()).orElseThrow();
+    }
+
+    /**
+     * Returns the cached DTO when the tweet has not changed since it was last mapped, so popular tweets are neither
+     * mapped nor serialized again. Package-private for the benchmarks.
+     */
+    TweetResponseDto mapTweetToDto(TweetEntity entity){
+        try (RequestTracer.Phase phase = this.requestTracer.phase("map")) {
+            String version = TweetFragmentCache.version(entity, this::author);
+            TweetResponseDto cached = this.tweetFragmentCache.get(entity.getId(), version);
+            if(cached != null)
+                return cached;
+
+            UserDto user = this.author(entity);
+            TweetResponseDto tweetResponseDto = TweetResponseDto.builder()
+                    .id(entity.getId())
+                    .userId(user.getId())
+                    .firstName(user.getFirstName())
+                    .lastName(user.getLastName())
+                    .username(user.getUsername())
+                    .duration(null)
+                    .tweetText(entity.getText())
+                    .replyCounter(entity.getReplyCounter())
+                    .retweetCounter(entity.getRetweetCounter())
+                    .likeCounter(entity.getLikeCounter())
+                    .build();
+
+            if(entity.getType() == TweetType.QUOTE && entity.getTweet() != null){
+                tweetResponseDto.setQuote(mapTweetToDto(entity.getTweet()));
+            }
+
+            this.tweetFragmentCache.put(entity.getId(), version, tweetResponseDto);
+            return tweetResponseDto;
         }
+    }
+
+    // package-private for the benchmarks
+    TweetResponseDto mapRetweetToDto(RetweetEntity retweetEntity) {
+        try (RequestTracer.Phase phase = this.requestTracer.phase("map")) {
+            TweetEntity tweet = retweetEntity.getTweet();
+            UserDto publisher = this.author(tweet);
+            UserDto retweetedBy = this.userProfileCache.findById(retweetEntity.getUser().getId()).orElseThrow();
+
+            UserDto retweeter = UserDto.builder()
+                    .id(retweetedBy.getId())
+                    .firstName(retweetedBy.getFirstName())
+                    .lastName(retweetedBy.getLastName())
+                    .username(retweetedBy.getUsername())
+                    .build();
+
+            TweetResponseDto tweetResponseDto = TweetResponseDto.builder()
+                    .id(tweet.getId())
+                    .userId(publisher.getId())
+                    .firstName(publisher.getFirstName())
+                    .lastName(publisher.getLastName())
+                    .username(publisher.getUsername())
+                    .duration(null)
+                    .tweetText(tweet.getText())
+                    .replyCounter(tweet.getReplyCounter())
+                    .retweetCounter(tweet.getRetweetCounter())
+                    .likeCounter(tweet.getLikeCounter())
+                    .retweetedBy(retweeter)
+                    .build();
+
+            if(retweetEntity.getTweet().getType() == TweetType.QUOTE){
+                tweetResponseDto.setQuote(mapTweetToDto(retweetEntity.getTweet().getTweet()));
+            }
 
-        return tweetResponseDto;
+            return tweetResponseDto;
+        }
     }
 
     @Transactional
@@ -252,6 +337,7 @@ public class TweetService {
         UserEntity user = this.authenticationService.getUserFromJwt();
         TweetEntity tweet = this.tweetRepository.findById(likeRetweetBookmarkDto.getTweetId()).orElseThrow();
         Optional<BookmarkEntity> optional = this.bookmarkRepository.findByUserAndTweet(user, tweet);
+        this.feedVersions.bump(FeedVersions.tab("bookmarks", user.getUsername()));
 
         if(optional.isPresent()){
             this.bookmarkRepository.delete(optional.get());
@@ -261,9 +347,9 @@ public class TweetService {
         }
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public List<TweetResponseDto> getBookmarksByUsername(String username) {
-        UserEntity user = this.userRepository.findByUsername(username).orElseThrow();
+        UserEntity user = this.userReference(username);
         return this.bookmarkRepository
                 .findAllByUser(user)
                 .orElseThrow()
@@ -0,0 +1,183 @@
+package com.velialiyev.twitterclone.service;
+
+import com.velialiyev.twitterclone.datasource.ReplicaReads;
+import com.velialiyev.twitterclone.dto.UserDto;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import com.velialiyev.twitterclone.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of user profiles by username, also reachable by user ID for the tweet mappers. Usernames that
+ * do not exist are cached as well, for a shorter time, so that probing for them does not reach the database every
+ * time. Entries are dropped by {@link #invalidate} when a profile changes, on other instances through the
+ * {@link CacheInvalidationLog}, and otherwise expire after their time-to-live. Profiles read from a replica that may
+ * not have the latest change yet are returned without being cached.
+ * <p>
+ * Cached profiles are shared between requests and must not be modified.
+ */
+@Component
+public class UserProfileCache {
+
+    private final UserRepository userRepository;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Long, String> usernames = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // loads that started before an invalidation must not store what they read
+    private long invalidations;
+
+    public UserProfileCache(UserRepository userRepository,
+                            @Value("${user.profile-cache.max-entries}") int maxEntries,
+                            @Value("${user.profile-cache.ttl}") Duration ttl,
+                            @Value("${user.profile-cache.negative-ttl}") Duration negativeTtl,
+                            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+
+        Gauge.builder("user.profile.cache.size", this, UserProfileCache::size).register(meterRegistry);
+        FunctionCounter.builder("user.profile.cache.requests", this.hits, AtomicLong::get).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("user.profile.cache.requests", this.negativeHits, AtomicLong::get).tag("result", "negative-hit").register(meterRegistry);
+        FunctionCounter.builder("user.profile.cache.requests", this.misses, AtomicLong::get).tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Returns the profile of the given user, or an empty optional if there is no such user.
+     */
+    public Optional<UserDto> findByUsername(String username) {
+        long now = System.nanoTime();
+        long invalidations;
+        synchronized (this.entries) {
+            Entry entry = this.entries.get(username);
+            if (entry != null && now < entry.expiresAt) {
+                (entry.profile == null ? this.negativeHits : this.hits).incrementAndGet();
+                return Optional.ofNullable(entry.profile);
+            }
+            invalidations = this.invalidations;
+        }
+
+        this.misses.incrementAndGet();
+        try (ReplicaReads replicaReads = ReplicaReads.track()) {
+            UserDto profile = this.userRepository.findByUsername(username).map(UserProfileCache::toProfile).orElse(null);
+            if (!replicaReads.isBehind()) {
+                this.store(username, profile, invalidations);
+            }
+            return Optional.ofNullable(profile);
+        }
+    }
+
+    public Optional<UserDto> findById(Long id) {
+        long now = System.nanoTime();
+        long invalidations;
+        synchronized (this.entries) {
+            String username = this.usernames.get(id);
+            Entry entry = username == null ? null : this.entries.get(username);
+            if (entry != null && entry.profile != null && entry.profile.getId().equals(id) && now < entry.expiresAt) {
+                this.hits.incrementAndGet();
+                return Optional.of(entry.profile);
+            }
+            invalidations = this.invalidations;
+        }
+
+        this.misses.incrementAndGet();
+        try (ReplicaReads replicaReads = ReplicaReads.track()) {
+            Optional<UserDto> profile = this.userRepository.findById(id).map(UserProfileCache::toProfile);
+            if (!replicaReads.isBehind()) {
+                profile.ifPresent(found -> this.store(found.getUsername(), found, invalidations));
+            }
+            return profile;
+        }
+    }
+
+    public void invalidate(String username) {
+        synchronized (this.entries) {
+            this.invalidations++;
+            this.remove(username);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (this.entries) {
+            this.invalidations++;
+            this.entries.clear();
+            this.usernames.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    private void store(String username, UserDto profile, long invalidations) {
+        long expiresAt = System.nanoTime() + (profile == null ? this.negativeTtlNanos : this.ttlNanos);
+        synchronized (this.entries) {
+            if (invalidations != this.invalidations) {
+                return;
+            }
+            this.remove(username);
+            this.entries.put(username, new Entry(profile, expiresAt));
+            if (profile != null) {
+                this.usernames.put(profile.getId(), username);
+            }
+
+            var eldest = this.entries.entrySet().iterator();
+            while (this.entries.size() > this.maxEntries && eldest.hasNext()) {
+                Entry evicted = eldest.next().getValue();
+                if (evicted.profile != null) {
+                    this.usernames.remove(evicted.profile.getId());
+                }
+                eldest.remove();
+            }
+        }
+    }
+
+    private void remove(String username) {
+        Entry removed = this.entries.remove(username);
+        if (removed != null && removed.profile != null) {
+            this.usernames.remove(removed.profile.getId());
+        }
+    }
+
+    private static UserDto toProfile(UserEntity user) {
+        return UserDto.builder()
+                .id(user.getId())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .username(user.getUsername())
+                .bio(user.getBio())
+                .location(user.getLocation())
+                .personalWebsite(user.getPersonalWebsite())
+                .birthDate(user.getBirthDate())
+                .profilePictureVersion(user.getProfilePictureHash())
+                .bannerPictureVersion(user.getBannerPictureHash())
+                .build();
+    }
+
+    private static class Entry {
+        private final UserDto profile;
+        private final long expiresAt;
+
+        private Entry(UserDto profile, long expiresAt) {
+            this.profile = profile;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,21 +1,32 @@
 package com.velialiyev.twitterclone.service;
 
+import com.velialiyev.twitterclone.dto.PictureDto;
 import com.velialiyev.twitterclone.dto.UserDto;
 import com.velialiyev.twitterclone.entity.UserEntity;
 import com.velialiyev.twitterclone.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
 
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 
 
 @Service
@@ -24,86 +35,190 @@ public class UserService {
 
 
     private final UserRepository userRepository;
-
-    @Transactional
+    private final MediaStore mediaStore;
+    private final ThumbnailService thumbnailService;
+    private final PictureCache pictureCache;
+    private final MeterRegistry meterRegistry;
+    private final FeedVersions feedVersions;
+    private final UserProfileCache userProfileCache;
+    private final CacheInvalidationLog cacheInvalidationLog;
+
+    @Value("${media.max-upload-size}")
+    private DataSize maxUploadSize;
+
+    /**
+     * Streams the upload into the media store and only then runs a single-statement update of the user row, so no
+     * database connection is held while the file is copied and the upload is never buffered on the heap.
+     */
     public void savePicture(MultipartFile picture, String username, String pictureDirectory) {
-
-        String userFolder = "/uploads/" + username;
-        String pictureName = "/" + username+ "." + FilenameUtils.getExtension(picture.getOriginalFilename());
-        File directory = new File(userFolder + pictureDirectory);
-
-        if(!directory.exists()){
-            directory.mkdirs();
-        }
-
-        try {
-            byte[] profilePictureBytes = picture.getBytes();
-            Path picturePath = Paths.get(directory.getPath() + pictureName);
-            FileUtils.cleanDirectory(directory);
-            Files.write(picturePath, profilePictureBytes);
-            UserEntity userEntity = this.userRepository.findByUsername(username).orElseThrow();
-
-            if(pictureDirectory.equals("/profilePicture"))
-                userEntity.setProfilePicturePath(picturePath.toAbsolutePath().toString());
-
-            else if(pictureDirectory.equals("/bannerPicture")){
-                userEntity.setBannerPicturePath(picturePath.toAbsolutePath().toString());
-                System.out.println("PATH : " + picturePath.toAbsolutePath());
-
+        Timer.Sample sample = Timer.start(this.meterRegistry);
+        String outcome = "error";
+        try (InputStream content = new BufferedInputStream(picture.getInputStream())) {
+            if(!this.isAllowedImage(content)){
+                throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Only JPEG, PNG, GIF and WebP pictures are accepted");
             }
 
+            // The content hash names the blob and doubles as the picture's ETag and URL version.
+            String hash = this.mediaStore.store(content, this.maxUploadSize.toBytes());
+            Instant updatedAt = Instant.now();
+            int updated = 0;
 
-            this.userRepository.save(userEntity);
-
+            if(pictureDirectory.equals("/profilePicture"))
+                updated = this.userRepository.updateProfilePicture(username, hash, updatedAt);
+
+            else if(pictureDirectory.equals("/bannerPicture"))
+                updated = this.userRepository.updateBannerPicture(username, hash, updatedAt);
+
+            if(updated == 0)
+                throw new NoSuchElementException("No user named " + username);
+
+            this.userProfileCache.invalidate(username);
+            // a bulk update, which other instances answer by dropping every cached user like this one did
+            this.cacheInvalidationLog.user(null, username);
+            this.feedVersions.bump(FeedVersions.tab("profile", username));
+            this.thumbnailService.requestVariants(hash);
+            outcome = "success";
+            DistributionSummary.builder("media.upload.size")
+                    .baseUnit("bytes")
+                    .tag("picture", pictureDirectory.substring(1))
+                    .register(this.meterRegistry)
+                    .record(picture.getSize());
+
+        } catch (ResponseStatusException e) {
+            outcome = "rejected";
+            throw e;
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException(e);
+        } finally {
+            sample.stop(Timer.builder("media.upload")
+                    .tag("picture", pictureDirectory.substring(1))
+                    .tag("outcome", outcome)
+                    .register(this.meterRegistry));
         }
     }
 
+    // Checks the magic bytes rather than trusting the client-supplied content type or file name.
+    private boolean isAllowedImage(InputStream content) throws IOException {
+        content.mark(12);
+        byte[] header = content.readNBytes(12);
+        content.reset();
 
+        return imageType(header) != null;
+    }
 
-    public UserDto getUser(String username) {
+    /**
+     * The type of a stored picture by its magic bytes. Originals keep the format they were uploaded in; the generated
+     * variants are JPEG.
+     */
+    public MediaType pictureType(Resource picture) {
+        try (InputStream content = picture.getInputStream()) {
+            MediaType type = imageType(content.readNBytes(12));
+            return type == null ? MediaType.APPLICATION_OCTET_STREAM : type;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        UserEntity user = this.userRepository.findByUsername(username).orElseThrow();
+    private static MediaType imageType(byte[] header) {
+        if(startsWith(header, 0xFF, 0xD8, 0xFF))
+            return MediaType.IMAGE_JPEG;
+        if(startsWith(header, 0x89, 'P', 'N', 'G'))
+            return MediaType.IMAGE_PNG;
+        if(startsWith(header, 'G', 'I', 'F', '8'))
+            return MediaType.IMAGE_GIF;
+        if(startsWith(header, 'R', 'I', 'F', 'F') && header.length == 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P')
+            return new MediaType("image", "webp");
+        return null;
+    }
 
+    private static boolean startsWith(byte[] header, int... signature) {
+        if(header.length < signature.length)
+            return false;
+        for(int i = 0; i < signature.length; i++){
+            if((header[i] & 0xFF) != signature[i])
+                return false;
+        }
+        return true;
+    }
 
 
-        UserDto userDto = UserDto.builder()
-                .firstName(user.getFirstName())
-                .lastName(user.getLastName())
-                .username(user.getUsername())
-                .bio(user.getBio())
-                .location(user.getLocation())
-                .personalWebsite(user.getPersonalWebsite())
-                .birthDate(user.getBirthDate())
-                .build();
 
-        return userDto;
+    public UserDto getUser(String username) {
+        return this.userProfileCache.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No user named " + username));
     }
 
-    public ByteArrayResource getPicture(String username, String directory) {
+    /**
+     * Serves hot pictures from the off-heap cache. Packed blobs are served straight from their mapped segment and
+     * bypass the cache. On a miss the file is read straight into a direct buffer and cached; files too large for the
+     * cache are streamed from disk instead.
+     */
+    public Resource getPicture(PictureDto picture) {
+        String blob = picture.getBlob();
+        ByteBuffer cached = this.pictureCache.get(blob);
+        if(cached != null)
+            return new ByteBufferResource(cached, blob);
 
-        Path picturePath = this.fetchPicturePath(username, directory);
         try {
-          ByteArrayResource resource = new ByteArrayResource(Files.readAllBytes(picturePath));
-          return resource;
+            ByteBuffer packed = this.mediaStore.readPacked(blob);
+            if(packed != null)
+                return new ByteBufferResource(packed, blob);
         } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+            throw new UncheckedIOException(e);
         }
 
+        Path path = this.mediaStore.resolve(blob);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if(!this.pictureCache.isCacheable(length))
+                return new FileSystemResource(path);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) length);
+            while(buffer.hasRemaining() && channel.read(buffer) != -1);
+            buffer.flip();
+            this.pictureCache.put(blob, buffer);
+            return new ByteBufferResource(buffer, blob);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    public Path fetchPicturePath(String username, String directory){
+    /**
+     * Resolves the picture's blob and its cache validators without touching the disk, so that conditional
+     * requests can be answered from the user row alone. Users without an upload share the default blob. When a size
+     * is requested the closest generated variant is used, falling back to the original until it exists. Whether variants
+     * exist is remembered by the store, and generation is requested at most once at a time per picture.
+     */
+    public PictureDto fetchPicture(String username, String directory, Integer size){
         UserEntity user = this.userRepository.findByUsername(username).orElseThrow();
-        Path picturePath = null;
-        if(directory.equals("/profilePicture"))
-             picturePath = Paths.get(user.getProfilePicturePath());
+        String hash = null;
+        Instant updatedAt = null;
+        if(directory.equals("/profilePicture")){
+            hash = Optional.ofNullable(user.getProfilePictureHash()).orElse(this.mediaStore.getDefaultProfilePictureHash());
+            updatedAt = user.getProfilePictureUpdatedAt();
+        }
 
-        else if(directory.equals("/bannerPicture"))
-            picturePath = Paths.get(user.getBannerPicturePath());
+        else if(directory.equals("/bannerPicture")){
+            hash = Optional.ofNullable(user.getBannerPictureHash()).orElse(this.mediaStore.getDefaultBannerPictureHash());
+            updatedAt = user.getBannerPictureUpdatedAt();
+        }
 
-        return picturePath;
+        if(hash == null)
+            return null;
+
+        Integer variant = this.mediaStore.closestVariant(hash, size);
+        boolean pending = variant == null && this.mediaStore.variantSize(size) != null && this.thumbnailService.requestVariants(hash);
+
+        return PictureDto.builder()
+                .username(username)
+                .directory(directory)
+                .blob(variant == null ? hash : MediaStore.variantName(hash, variant))
+                .hash(hash)
+                .size(variant)
+                .pending(pending)
+                .updatedAt(updatedAt)
+                .build();
     }
 
     public void editProfile(UserDto user) {
@@ -114,5 +229,10 @@ public class UserService {
         userEntity.setLocation(user.getLocation());
         userEntity.setPersonalWebsite(user.getPersonalWebsite());
         this.userRepository.save(userEntity);
+        this.userProfileCache.invalidate(user.getUsername());
+        this.cacheInvalidationLog.user(userEntity.getId(), user.getUsername());
+        // author names are shown in every feed
+        this.feedVersions.bump(FeedVersions.tab("profile", user.getUsername()));
+        this.feedVersions.bumpAll();
     }
 }
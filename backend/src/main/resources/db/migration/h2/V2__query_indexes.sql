@@ -0,0 +1,39 @@
+-- One index per repository query, so that none of them scans a whole table. Indexes that lead with a foreign key
+-- column also serve that foreign key.
+
+-- TweetRepository.findAllByUserAndType, the profile tabs; created_date keeps a time-ordered tab in index order
+CREATE INDEX idx_tweet_user_type_created ON tweet_entity (user_id, type, created_date);
+
+-- TweetRepository.findAllByTweetAndType, the replies and quotes of a tweet
+CREATE INDEX idx_tweet_parent_type ON tweet_entity (tweet_id, type);
+
+-- TweetRepository.findAllByType, the global timeline
+CREATE INDEX idx_tweet_type_created ON tweet_entity (type, created_date);
+
+-- findByUserAndTweet for the like, retweet and bookmark toggles, and findAllByUser for the profile tabs
+CREATE INDEX idx_like_user_tweet ON like_entity (user_id, tweet_id);
+CREATE INDEX idx_retweet_user_tweet ON retweet_entity (user_id, tweet_id);
+CREATE INDEX idx_bookmark_user_tweet ON bookmark_entity (user_id, tweet_id);
+
+-- RefreshTokenRepository.findByRefreshToken and deleteByRefreshToken, on every token refresh and logout
+CREATE INDEX idx_refresh_token ON refresh_token_entity (refresh_token);
+
+-- UserRepository.findByEmail
+CREATE INDEX idx_user_email ON user_entity (email);
+
+-- UserRepository.findAllProfilePictureHashes and findAllBannerPictureHashes, read from the index alone
+CREATE INDEX idx_user_profile_picture_hash ON user_entity (profile_picture_hash);
+CREATE INDEX idx_user_banner_picture_hash ON user_entity (banner_picture_hash);
+
+-- MySQL drops the index it created for a foreign key once another index leads with the same column, H2 keeps it.
+-- Recreating those foreign keys makes H2 use the new indexes for them too and drops the redundant ones.
+ALTER TABLE tweet_entity DROP CONSTRAINT FKs9d0mbycb7dyxbygcbedom7pu;
+ALTER TABLE tweet_entity ADD CONSTRAINT FKs9d0mbycb7dyxbygcbedom7pu FOREIGN KEY (user_id) REFERENCES user_entity (id);
+ALTER TABLE tweet_entity DROP CONSTRAINT FKtlscgfsgysgq8h5s5nfd3vwr8;
+ALTER TABLE tweet_entity ADD CONSTRAINT FKtlscgfsgysgq8h5s5nfd3vwr8 FOREIGN KEY (tweet_id) REFERENCES tweet_entity (id);
+ALTER TABLE like_entity DROP CONSTRAINT FKduh2vumavx5xvrj1ndsmj3pi2;
+ALTER TABLE like_entity ADD CONSTRAINT FKduh2vumavx5xvrj1ndsmj3pi2 FOREIGN KEY (user_id) REFERENCES user_entity (id);
+ALTER TABLE retweet_entity DROP CONSTRAINT FK7gkq23s3vjpyny6uc2au05f6a;
+ALTER TABLE retweet_entity ADD CONSTRAINT FK7gkq23s3vjpyny6uc2au05f6a FOREIGN KEY (user_id) REFERENCES user_entity (id);
+ALTER TABLE bookmark_entity DROP CONSTRAINT FKkb3g9kvqkbambinmrsjsdb74x;
+ALTER TABLE bookmark_entity ADD CONSTRAINT FKkb3g9kvqkbambinmrsjsdb74x FOREIGN KEY (user_id) REFERENCES user_entity (id);
@@ -0,0 +1,14 @@
+-- Change feed through which application instances tell each other which cached entries to drop, see
+-- CacheInvalidationLog. Instances read it by ID above the highest one they have seen; created_at serves compaction.
+
+CREATE TABLE cache_invalidation (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    origin     VARCHAR(36)  NOT NULL,
+    kind       VARCHAR(16)  NOT NULL,
+    entity_id  BIGINT,
+    cache_key  VARCHAR(255),
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_cache_invalidation_created ON cache_invalidation (created_at);
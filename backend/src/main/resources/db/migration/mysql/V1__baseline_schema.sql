@@ -0,0 +1,70 @@
+-- The schema as Hibernate created it from the entities before migrations were introduced. Databases that already
+-- have it are baselined at this version (spring.flyway.baseline-on-migrate) and only run the later migrations.
+
+CREATE TABLE user_entity (
+    id                         BIGINT       NOT NULL AUTO_INCREMENT,
+    banner_picture_hash        VARCHAR(255),
+    banner_picture_updated_at  DATETIME(6),
+    bio                        VARCHAR(255),
+    birth_date                 VARCHAR(255),
+    email                      VARCHAR(255) NOT NULL,
+    first_name                 VARCHAR(255) NOT NULL,
+    last_name                  VARCHAR(255) NOT NULL,
+    location                   VARCHAR(255),
+    password                   VARCHAR(255) NOT NULL,
+    personal_website           VARCHAR(255),
+    profile_picture_hash       VARCHAR(255),
+    profile_picture_updated_at DATETIME(6),
+    username                   VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT UK_2jsk4eakd0rmvybo409wgwxuw UNIQUE (username)
+) ENGINE = InnoDB;
+
+CREATE TABLE tweet_entity (
+    id              BIGINT NOT NULL AUTO_INCREMENT,
+    created_date    DATETIME(6),
+    like_counter    INTEGER,
+    reply_counter   INTEGER,
+    retweet_counter INTEGER,
+    text            VARCHAR(255),
+    type            INTEGER,
+    tweet_id        BIGINT,
+    user_id         BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT FKtlscgfsgysgq8h5s5nfd3vwr8 FOREIGN KEY (tweet_id) REFERENCES tweet_entity (id),
+    CONSTRAINT FKs9d0mbycb7dyxbygcbedom7pu FOREIGN KEY (user_id) REFERENCES user_entity (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE like_entity (
+    id       BIGINT NOT NULL AUTO_INCREMENT,
+    tweet_id BIGINT,
+    user_id  BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT FK5auwtcintpaclxdte7fch3371 FOREIGN KEY (tweet_id) REFERENCES tweet_entity (id),
+    CONSTRAINT FKduh2vumavx5xvrj1ndsmj3pi2 FOREIGN KEY (user_id) REFERENCES user_entity (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE retweet_entity (
+    id       BIGINT NOT NULL AUTO_INCREMENT,
+    tweet_id BIGINT,
+    user_id  BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT FKlohf0yc0dwc51bde1x2ebvbb8 FOREIGN KEY (tweet_id) REFERENCES tweet_entity (id),
+    CONSTRAINT FK7gkq23s3vjpyny6uc2au05f6a FOREIGN KEY (user_id) REFERENCES user_entity (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE bookmark_entity (
+    id       BIGINT NOT NULL AUTO_INCREMENT,
+    tweet_id BIGINT,
+    user_id  BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT FKnm666c7mw6pam1smlwvwa6o9n FOREIGN KEY (tweet_id) REFERENCES tweet_entity (id),
+    CONSTRAINT FKkb3g9kvqkbambinmrsjsdb74x FOREIGN KEY (user_id) REFERENCES user_entity (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE refresh_token_entity (
+    id            BIGINT NOT NULL AUTO_INCREMENT,
+    created_date  DATETIME(6),
+    refresh_token VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,26 @@
+-- One index per repository query, so that none of them scans a whole table. Indexes that lead with a foreign key
+-- column also serve that foreign key.
+
+-- TweetRepository.findAllByUserAndType, the profile tabs; created_date keeps a time-ordered tab in index order
+CREATE INDEX idx_tweet_user_type_created ON tweet_entity (user_id, type, created_date);
+
+-- TweetRepository.findAllByTweetAndType, the replies and quotes of a tweet
+CREATE INDEX idx_tweet_parent_type ON tweet_entity (tweet_id, type);
+
+-- TweetRepository.findAllByType, the global timeline
+CREATE INDEX idx_tweet_type_created ON tweet_entity (type, created_date);
+
+-- findByUserAndTweet for the like, retweet and bookmark toggles, and findAllByUser for the profile tabs
+CREATE INDEX idx_like_user_tweet ON like_entity (user_id, tweet_id);
+CREATE INDEX idx_retweet_user_tweet ON retweet_entity (user_id, tweet_id);
+CREATE INDEX idx_bookmark_user_tweet ON bookmark_entity (user_id, tweet_id);
+
+-- RefreshTokenRepository.findByRefreshToken and deleteByRefreshToken, on every token refresh and logout
+CREATE INDEX idx_refresh_token ON refresh_token_entity (refresh_token);
+
+-- UserRepository.findByEmail
+CREATE INDEX idx_user_email ON user_entity (email);
+
+-- UserRepository.findAllProfilePictureHashes and findAllBannerPictureHashes, read from the index alone
+CREATE INDEX idx_user_profile_picture_hash ON user_entity (profile_picture_hash);
+CREATE INDEX idx_user_banner_picture_hash ON user_entity (banner_picture_hash);
@@ -0,0 +1,29 @@
+package com.velialiyev.twitterclone;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails a test whose body issues more SQL statements, or allocates more bytes on the test thread, than allowed.
+ * Only the test method itself is measured; data created in {@code @BeforeEach} methods does not count. Requires a
+ * Spring test context with the {@link com.velialiyev.twitterclone.datasource.SqlStatementCounter}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryBudgetExtension.class)
+public @interface QueryBudget {
+
+    /**
+     * Maximum number of SQL statements.
+     */
+    int max();
+
+    /**
+     * Maximum bytes allocated by the test thread, or -1 for no limit.
+     */
+    long maxAllocatedBytes() default -1;
+}
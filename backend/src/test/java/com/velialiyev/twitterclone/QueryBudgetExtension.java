@@ -0,0 +1,58 @@
+package com.velialiyev.twitterclone;
+
+import com.velialiyev.twitterclone.datasource.SqlStatementCounter;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.opentest4j.AssertionFailedError;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the statements and thread allocations of tests annotated with {@link QueryBudget}.
+ */
+public class QueryBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        counter(context).start();
+        context.getStore(NAMESPACE).put("allocated", allocatedBytes());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        long allocated = allocatedBytes() - context.getStore(NAMESPACE).remove("allocated", Long.class);
+        SqlStatementCounter.Statements statements = counter(context).stop();
+        QueryBudget budget = context.getRequiredTestMethod().getAnnotation(QueryBudget.class);
+
+        if (statements.total() > budget.max()) {
+            throw new AssertionFailedError("Expected at most " + budget.max() + " SQL statements but " + statements.total()
+                    + " ran:\n" + describe(statements.counts()));
+        }
+        if (budget.maxAllocatedBytes() >= 0 && allocated > budget.maxAllocatedBytes()) {
+            throw new AssertionFailedError("Expected at most " + budget.maxAllocatedBytes() + " bytes allocated but "
+                    + allocated + " were");
+        }
+    }
+
+    private static SqlStatementCounter counter(ExtensionContext context) {
+        return SpringExtension.getApplicationContext(context).getBean(SqlStatementCounter.class);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String describe(Map<String, Integer> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .map(entry -> "  " + entry.getValue() + "x " + entry.getKey())
+                .collect(Collectors.joining("\n"));
+    }
+}
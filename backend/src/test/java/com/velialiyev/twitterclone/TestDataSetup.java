@@ -2,6 +2,7 @@ package com.velialiyev.twitterclone;
 
 import com.velialiyev.twitterclone.entity.*;
 import com.velialiyev.twitterclone.repository.*;
+import com.velialiyev.twitterclone.service.UserProfileCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestComponent;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -35,6 +36,9 @@ public class TestDataSetup {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserProfileCache userProfileCache;
+
     @Transactional
     public UserEntity createTestUser(String username, String email) {
         UserEntity user = UserEntity.builder()
@@ -43,8 +47,6 @@ public class TestDataSetup {
                 .username(username)
                 .email(email)
                 .password(passwordEncoder.encode("password123"))
-                .profilePicturePath("test-profile.jpg")
-                .bannerPicturePath("test-banner.jpg")
                 .build();
 
         return userRepository.save(user);
@@ -147,6 +149,8 @@ public class TestDataSetup {
         likeRepository.deleteAll();
         retweetRepository.deleteAll();
         tweetRepository.deleteAll();
+        // usernames are reused by the next test with new IDs
+        userRepository.findAll().forEach(user -> userProfileCache.invalidate(user.getUsername()));
         userRepository.deleteAll();
     }
 
@@ -0,0 +1,51 @@
+package com.velialiyev.twitterclone.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.dto.UserDto;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a timeline page survives a round trip through each negotiable response format. Their sizes and
+ * encoding cost are compared by {@code ResponseFormatBenchmark} in the benchmarks module.
+ */
+class ResponseFormatRoundTripTest {
+
+    static Stream<ObjectMapper> mappers() {
+        return Stream.of(new ObjectMapper(), new CBORMapper(), new SmileMapper());
+    }
+
+    @ParameterizedTest
+    @MethodSource("mappers")
+    void readValue_ShouldRestoreTimelinePage_WhenWrittenInFormat(ObjectMapper mapper) throws IOException {
+        // Given
+        TweetResponseDto quoted = TweetResponseDto.builder().id(1L).userId(2L).username("janeroe").tweetText("original")
+                .replyCounter(1).retweetCounter(2).likeCounter(3).build();
+        TweetResponseDto tweet = TweetResponseDto.builder().id(2L).userId(1L).firstName("John").lastName("Doe")
+                .username("johndoe").tweetText("quote, with ünïcode").replyCounter(0).retweetCounter(0).likeCounter(7)
+                .retweetedBy(UserDto.builder().id(3L).username("retweeter").build())
+                .quote(quoted)
+                .build();
+
+        // When
+        byte[] payload = mapper.writeValueAsBytes(List.of(tweet, quoted));
+        TweetResponseDto[] decoded = mapper.readValue(payload, TweetResponseDto[].class);
+
+        // Then
+        assertEquals(2, decoded.length);
+        assertArrayEquals(mapper.writeValueAsBytes(tweet), mapper.writeValueAsBytes(decoded[0]));
+        assertEquals("quote, with ünïcode", decoded[0].getTweetText());
+        assertEquals("retweeter", decoded[0].getRetweetedBy().getUsername());
+        assertEquals("original", decoded[0].getQuote().getTweetText());
+        assertEquals(3, decoded[1].getLikeCounter());
+    }
+}
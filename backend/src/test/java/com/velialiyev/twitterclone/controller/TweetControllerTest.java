@@ -1,14 +1,22 @@
 package com.velialiyev.twitterclone.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.velialiyev.twitterclone.dto.TweetDto;
 import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.dto.UserDto;
+import com.velialiyev.twitterclone.service.CacheInvalidationLog;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import com.velialiyev.twitterclone.service.ReadCoalescer;
 import com.velialiyev.twitterclone.service.TweetService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -16,12 +24,14 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = TweetController.class)
+@Import({FeedVersions.class, ReadCoalescer.class, SimpleMeterRegistry.class, TimelineResponses.class})
 class TweetControllerTest {
 
     @Autowired
@@ -30,6 +40,12 @@ class TweetControllerTest {
     @MockBean
     private TweetService tweetService;
 
+    @MockBean
+    private CacheInvalidationLog cacheInvalidationLog;
+
+    @Autowired
+    private FeedVersions feedVersions;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -38,6 +54,9 @@ class TweetControllerTest {
 
     @BeforeEach
     void setUp() {
+        // the context is shared between tests, so start from a feed version no earlier test has loaded
+        feedVersions.bumpAll();
+
         tweetDto = TweetDto.builder()
                 .text("Test tweet content")
                 .type("TWEET")
@@ -45,6 +64,7 @@ class TweetControllerTest {
 
         tweetResponseDto = TweetResponseDto.builder()
                 .id(1L)
+                .userId(10L)
                 .firstName("John")
                 .lastName("Doe")
                 .username("johndoe")
@@ -104,6 +124,163 @@ class TweetControllerTest {
         verify(tweetService, times(1)).getTweetsByUsername(username);
     }
 
+    @Test
+    @WithMockUser
+    void getAllTweets_ShouldReturnNotModifiedWithoutQuery_WhenFeedIsUnchanged() throws Exception {
+        // Given
+        when(tweetService.getAll()).thenReturn(Arrays.asList(tweetResponseDto));
+        String eTag = mockMvc.perform(get("/posts"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When & Then
+        mockMvc.perform(get("/posts").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        verify(tweetService, times(1)).getAll();
+    }
+
+    @Test
+    @WithMockUser
+    void getAllTweets_ShouldReturnNewETag_WhenFeedWasBumped() throws Exception {
+        // Given
+        when(tweetService.getAll()).thenReturn(Arrays.asList(tweetResponseDto));
+        String eTag = mockMvc.perform(get("/posts"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        feedVersions.bump(FeedVersions.GLOBAL);
+
+        // When
+        String newETag = mockMvc.perform(get("/posts").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Then
+        assertNotNull(newETag);
+        assertNotEquals(eTag, newETag);
+    }
+
+    @Test
+    @WithMockUser
+    void getLikedByUsername_ShouldReturnNewETag_WhenLikedTweetChangedInItsOwnFeed() throws Exception {
+        // Given
+        when(tweetService.getLikedByUsername("janeroe")).thenReturn(Arrays.asList(tweetResponseDto));
+        String eTag = mockMvc.perform(get("/posts/liked-by-username/{username}", "janeroe"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When someone else likes it, which bumps the tweet's own feeds but not Jane's likes
+        feedVersions.bump(FeedVersions.tweet(1L));
+
+        // Then
+        mockMvc.perform(get("/posts/liked-by-username/{username}", "janeroe").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        verify(tweetService, times(2)).getLikedByUsername("janeroe");
+    }
+
+    @Test
+    @WithMockUser
+    void getAllTweets_ShouldReturnNewETag_WhenQuotedReplyChanged() throws Exception {
+        // Given
+        TweetResponseDto reply = TweetResponseDto.builder().id(5L).userId(20L).tweetText("A reply").likeCounter(0).build();
+        TweetResponseDto quote = TweetResponseDto.builder().id(6L).userId(10L).tweetText("Quoting a reply").quote(reply).build();
+        when(tweetService.getAll()).thenReturn(Arrays.asList(quote));
+        String eTag = mockMvc.perform(get("/posts"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When a like of the reply bumps its feeds, which do not include the global feed
+        feedVersions.bump(FeedVersions.tweet(5L));
+
+        // Then
+        mockMvc.perform(get("/posts").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        verify(tweetService, times(2)).getAll();
+    }
+
+    @Test
+    @WithMockUser
+    void getAllTweets_ShouldSendNoETag_WhenShownTweetChangedDuringLoad() throws Exception {
+        // Given
+        when(tweetService.getAll()).thenAnswer(invocation -> {
+            feedVersions.bump(FeedVersions.tweet(1L));
+            return Arrays.asList(tweetResponseDto);
+        });
+
+        // When & Then
+        mockMvc.perform(get("/posts"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @WithMockUser
+    void getAllTweets_ShouldEncodeCbor_WhenCborIsAccepted() throws Exception {
+        // Given
+        when(tweetService.getAll()).thenReturn(Arrays.asList(tweetResponseDto));
+
+        // When
+        byte[] body = mockMvc.perform(get("/posts").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        TweetResponseDto[] tweets = new CBORMapper().readValue(body, TweetResponseDto[].class);
+        assertEquals("johndoe", tweets[0].getUsername());
+    }
+
+    @Test
+    @WithMockUser
+    void getAllTweets_ShouldNameFormatInETag_WhenBinaryFormatIsAccepted() throws Exception {
+        // Given
+        when(tweetService.getAll()).thenReturn(Arrays.asList(tweetResponseDto));
+        String jsonETag = mockMvc.perform(get("/posts").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When
+        String cborETag = mockMvc.perform(get("/posts").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String smileETag = mockMvc.perform(get("/posts").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Then
+        assertEquals(jsonETag.replaceAll("\"$", "+cbor\""), cborETag);
+        assertEquals(jsonETag.replaceAll("\"$", "+smile\""), smileETag);
+        mockMvc.perform(get("/posts").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cborETag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser
+    void getTweetsByUsername_ShouldSideloadUsersOnce_WhenSideloadRequested() throws Exception {
+        // Given
+        TweetResponseDto retweet = TweetResponseDto.builder()
+                .id(2L)
+                .userId(20L)
+                .firstName("Jane")
+                .lastName("Roe")
+                .username("janeroe")
+                .tweetText("Quoting")
+                .retweetedBy(UserDto.builder().id(10L).firstName("John").lastName("Doe").username("johndoe").build())
+                .quote(tweetResponseDto)
+                .build();
+        when(tweetService.getTweetsByUsername("johndoe")).thenReturn(Arrays.asList(tweetResponseDto, retweet));
+
+        // When & Then
+        mockMvc.perform(get("/posts/tweets-by-username/{username}", "johndoe").param("sideload", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(2))
+                .andExpect(jsonPath("$.users.10.username").value("johndoe"))
+                .andExpect(jsonPath("$.users.20.username").value("janeroe"))
+                .andExpect(jsonPath("$.users.10.bio").doesNotExist())
+                .andExpect(jsonPath("$.tweets[0].userId").value(10))
+                .andExpect(jsonPath("$.tweets[0].username").doesNotExist())
+                .andExpect(jsonPath("$.tweets[1].retweetedById").value(10))
+                .andExpect(jsonPath("$.tweets[1].quote.userId").value(10));
+    }
+
     @Test
     @WithMockUser
     void getRetweetsByUsername_ShouldReturnRetweets_WhenValidUsername() throws Exception {
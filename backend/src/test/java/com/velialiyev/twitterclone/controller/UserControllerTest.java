@@ -0,0 +1,139 @@
+package com.velialiyev.twitterclone.controller;
+
+import com.velialiyev.twitterclone.dto.PictureDto;
+import com.velialiyev.twitterclone.service.CacheInvalidationLog;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import com.velialiyev.twitterclone.service.ReadCoalescer;
+import com.velialiyev.twitterclone.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = UserController.class)
+@Import({FeedVersions.class, ReadCoalescer.class, SimpleMeterRegistry.class})
+class UserControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private CacheInvalidationLog cacheInvalidationLog;
+
+    private PictureDto picture;
+
+    @BeforeEach
+    void setUp() {
+        picture = PictureDto.builder()
+                .blob("abc123")
+                .hash("abc123")
+                .updatedAt(Instant.parse("2024-01-01T00:00:00Z"))
+                .build();
+    }
+
+    @Test
+    @WithMockUser
+    void getProfilePicture_ShouldReturnPictureWithValidators_WhenNoConditionalHeaders() throws Exception {
+        // Given
+        when(userService.fetchPicture("johndoe", "/profilePicture", null)).thenReturn(picture);
+        when(userService.getPicture(picture)).thenReturn(new ByteArrayResource(new byte[]{1, 2, 3}));
+
+        // When & Then
+        mockMvc.perform(get("/user/profile-picture/get/{username}", "johndoe"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+    }
+
+    @Test
+    @WithMockUser
+    void getProfilePicture_ShouldReturnNotModifiedWithoutReading_WhenETagMatches() throws Exception {
+        // Given
+        when(userService.fetchPicture("johndoe", "/profilePicture", null)).thenReturn(picture);
+
+        // When & Then
+        mockMvc.perform(get("/user/profile-picture/get/{username}", "johndoe")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc123\""))
+                .andExpect(status().isNotModified());
+
+        verify(userService, never()).getPicture(any());
+    }
+
+    @Test
+    @WithMockUser
+    void getBannerPicture_ShouldBeImmutable_WhenVersionMatches() throws Exception {
+        // Given
+        when(userService.fetchPicture("johndoe", "/bannerPicture", null)).thenReturn(picture);
+        when(userService.getPicture(picture)).thenReturn(new ByteArrayResource(new byte[]{1, 2, 3}));
+
+        // When & Then
+        mockMvc.perform(get("/user/banner-picture/get/{username}", "johndoe").param("v", "abc123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+    }
+
+    @Test
+    @WithMockUser
+    void getProfilePicture_ShouldRevalidate_WhenOriginalStandsInForPendingVariant() throws Exception {
+        // Given
+        picture.setPending(true);
+        when(userService.fetchPicture("johndoe", "/profilePicture", 40)).thenReturn(picture);
+        when(userService.getPicture(picture)).thenReturn(new ByteArrayResource(new byte[]{1, 2, 3}));
+
+        // When & Then
+        mockMvc.perform(get("/user/profile-picture/get/{username}", "johndoe").param("size", "40").param("v", "abc123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+    }
+
+    @Test
+    @WithMockUser
+    void getProfilePicture_ShouldTagVariant_WhenSizeIsRequested() throws Exception {
+        // Given
+        picture.setSize(48);
+        when(userService.fetchPicture("johndoe", "/profilePicture", 40)).thenReturn(picture);
+        when(userService.getPicture(picture)).thenReturn(new ByteArrayResource(new byte[]{1, 2, 3}));
+
+        // When & Then
+        mockMvc.perform(get("/user/profile-picture/get/{username}", "johndoe").param("size", "40"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123-48\""));
+    }
+
+    @Test
+    @WithMockUser
+    void getProfilePicture_ShouldSendStoredType_WhenOriginalIsNotJpeg() throws Exception {
+        // Given
+        ByteArrayResource png = new ByteArrayResource(new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+        when(userService.fetchPicture("johndoe", "/profilePicture", null)).thenReturn(picture);
+        when(userService.getPicture(picture)).thenReturn(png);
+        when(userService.pictureType(png)).thenReturn(MediaType.IMAGE_PNG);
+
+        // When & Then
+        mockMvc.perform(get("/user/profile-picture/get/{username}", "johndoe").param("v", "abc123"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+    }
+}
@@ -0,0 +1,98 @@
+package com.velialiyev.twitterclone.datasource;
+
+import com.velialiyev.twitterclone.service.MediaStore;
+import com.velialiyev.twitterclone.service.PackStore;
+import org.flywaydb.core.api.migration.Context;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PicturePathMigrationTest {
+
+    @TempDir
+    Path storageDirectory;
+
+    private Connection connection;
+    private JdbcTemplate jdbcTemplate;
+    private MediaStore mediaStore;
+    private Context context;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        Files.writeString(storageDirectory.resolve("DummyProfilePicture.jpg"), "default");
+        mediaStore = new MediaStore(storageDirectory + "/",
+                storageDirectory.resolve("DummyProfilePicture.jpg").toString(),
+                storageDirectory.resolve("DummyBannerPicture.jpg").toString(),
+                List.of(48),
+                new PackStore(false, storageDirectory + "/", DataSize.ofKilobytes(64), DataSize.ofMegabytes(1), 0.5));
+        mediaStore.importDefaults();
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:picture-paths;DB_CLOSE_DELAY=-1");
+        connection = dataSource.getConnection();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        context = mock(Context.class);
+        when(context.getConnection()).thenReturn(connection);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    void migrate_ShouldImportFilesAndFillInHashes_WhenTableHasPathColumns() throws Exception {
+        // Given: the schema from before the media store
+        jdbcTemplate.execute("CREATE TABLE user_entity (id BIGINT PRIMARY KEY, username VARCHAR(255),"
+                + " profile_picture_path VARCHAR(255), banner_picture_path VARCHAR(255))");
+        Path upload = Files.writeString(storageDirectory.resolve("john.jpg"), "john's picture");
+        jdbcTemplate.update("INSERT INTO user_entity VALUES (1, 'john', ?, ?)",
+                upload.toString(), storageDirectory.resolve("missing.jpg").toString());
+        jdbcTemplate.update("INSERT INTO user_entity VALUES (2, 'jane', ?, NULL)",
+                storageDirectory.resolve("DummyProfilePicture.jpg").toString());
+
+        // When
+        new PicturePathMigration(mediaStore).migrate(context);
+
+        // Then
+        Map<String, Object> john = jdbcTemplate.queryForMap("SELECT * FROM user_entity WHERE id = 1");
+        assertEquals(MediaStore.hash("john's picture".getBytes(StandardCharsets.UTF_8)), john.get("profile_picture_hash"));
+        assertNotNull(john.get("profile_picture_updated_at"));
+        assertTrue(mediaStore.exists((String) john.get("profile_picture_hash")));
+        assertNull(john.get("banner_picture_hash"));
+        assertEquals(upload.toString(), john.get("profile_picture_path"));
+        // the default picture is shown for a null hash
+        assertNull(jdbcTemplate.queryForObject("SELECT profile_picture_hash FROM user_entity WHERE id = 2", String.class));
+    }
+
+    @Test
+    void migrate_ShouldDoNothing_WhenTableHasNoPathColumns() throws Exception {
+        // Given
+        jdbcTemplate.execute("CREATE TABLE user_entity (id BIGINT PRIMARY KEY, profile_picture_hash VARCHAR(255))");
+
+        // When
+        new PicturePathMigration(mediaStore).migrate(context);
+
+        // Then
+        assertEquals(List.of("ID", "PROFILE_PICTURE_HASH"), jdbcTemplate.queryForList(
+                "SELECT column_name FROM information_schema.columns WHERE table_name = 'USER_ENTITY' ORDER BY ordinal_position", String.class));
+    }
+}
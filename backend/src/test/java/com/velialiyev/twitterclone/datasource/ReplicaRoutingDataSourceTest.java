@@ -0,0 +1,227 @@
+package com.velialiyev.twitterclone.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private MutableClock clock;
+    private ReplicaRoutingDataSource routing;
+    private ReplicaLagMonitor monitor;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("primary");
+        replica = h2("replica");
+        clock = new MutableClock();
+        routing = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica), Duration.ofSeconds(5), clock);
+        routing.afterPropertiesSet();
+        monitor = new ReplicaLagMonitor(routing, Duration.ofSeconds(2), clock);
+        monitor.createHeartbeatTable();
+        new JdbcTemplate(replica).execute(ReplicaLagMonitor.CREATE_TABLE);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        routing.unbindClient();
+        new JdbcTemplate(primary).execute("DROP ALL OBJECTS");
+        new JdbcTemplate(replica).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica_AndWritesThePrimary() {
+        assertEquals("replica", node(readOnly));
+        assertEquals("primary", node(readWrite));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUsePrimary_WhileClientIsPinnedAfterWrite() {
+        // Given
+        AtomicLong lastWrite = new AtomicLong();
+        routing.bindClient(0, lastWrite::set);
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+        assertEquals(clock.millis(), lastWrite.get());
+
+        // When the client's next request presents the commit time
+        routing.bindClient(lastWrite.get(), written -> { });
+
+        // Then
+        assertEquals("primary", node(readOnly));
+
+        // When the pin window has passed
+        clock.advance(Duration.ofSeconds(6));
+
+        // Then
+        assertEquals("replica", node(readOnly));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUsePrimary_WhenClientWroteThroughAnotherInstance() {
+        // Given
+        routing.bindClient(clock.millis() - 1000, written -> { });
+
+        // Then
+        assertEquals("primary", node(readOnly));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica_WhenClientPresentsFarFutureCommitTime() {
+        // Given
+        routing.bindClient(clock.millis() + Duration.ofHours(1).toMillis(), written -> { });
+
+        // Then
+        assertEquals("replica", node(readOnly));
+    }
+
+    @Test
+    void readWriteTransaction_ShouldNotReportCommit_WhenItOnlyRead() {
+        // Given
+        AtomicLong lastWrite = new AtomicLong();
+        routing.bindClient(0, lastWrite::set);
+
+        // When
+        assertEquals("primary", node(readWrite));
+
+        // Then
+        assertEquals(0, lastWrite.get());
+        assertEquals("replica", node(readOnly));
+    }
+
+    @Test
+    void readWriteTransaction_ShouldNotReportCommit_WhenWriteRolledBack() {
+        // Given
+        AtomicLong lastWrite = new AtomicLong();
+        routing.bindClient(0, lastWrite::set);
+
+        // When
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET name = name");
+            status.setRollbackOnly();
+        });
+
+        // Then
+        assertEquals(0, lastWrite.get());
+        assertFalse(isBehind(readOnly));
+    }
+
+    @Test
+    void replicaRead_ShouldBeBehind_WithinPinWindowAfterAnyWrite() {
+        // Given another client wrote
+        AtomicInteger behindReads = new AtomicInteger();
+        routing.setBehindReadListener(behindReads::incrementAndGet);
+        readWrite.executeWithoutResult(status -> jdbcTemplate.batchUpdate("UPDATE node SET name = name"));
+
+        // Then
+        assertTrue(isBehind(readOnly));
+        assertEquals(1, behindReads.get());
+
+        // When the pin window has passed
+        clock.advance(Duration.ofSeconds(6));
+
+        // Then
+        assertFalse(isBehind(readOnly));
+        assertEquals(1, behindReads.get());
+    }
+
+    @Test
+    void replicaRead_ShouldBeBehind_WhenAnotherInstanceChangedData() {
+        // When
+        routing.changed();
+
+        // Then
+        assertTrue(isBehind(readOnly));
+        assertFalse(isBehind(readWrite));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldFallBackToPrimary_WhenReplicaLags() {
+        // Given: the replica has a heartbeat from 10 seconds ago
+        new JdbcTemplate(replica).update("INSERT INTO replication_heartbeat (id, beat) VALUES (1, ?)", clock.millis());
+        clock.advance(Duration.ofSeconds(10));
+
+        // When
+        monitor.check();
+
+        // Then
+        assertEquals("primary", node(readOnly));
+
+        // When the replica catches up
+        new JdbcTemplate(replica).update("UPDATE replication_heartbeat SET beat = ? WHERE id = 1", clock.millis());
+        monitor.check();
+
+        // Then
+        assertEquals("replica", node(readOnly));
+    }
+
+    private String node(TransactionTemplate template) {
+        return template.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private boolean isBehind(TransactionTemplate template) {
+        try (ReplicaReads replicaReads = ReplicaReads.track()) {
+            node(template);
+            return replicaReads.isBehind();
+        }
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            this.now = this.now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.now;
+        }
+    }
+}
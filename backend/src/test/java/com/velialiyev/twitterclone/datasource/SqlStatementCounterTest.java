@@ -0,0 +1,65 @@
+package com.velialiyev.twitterclone.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlStatementCounterTest {
+
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+
+    @Test
+    void normalize_ShouldReplaceLiteralsAndCollapseInLists() {
+        assertEquals("select * from user where id in (?) and name = ? limit ?",
+                SqlStatementCounter.normalize("SELECT *  FROM user\n WHERE id IN (?, ?, ?) AND name = 'o''neil' LIMIT 10"));
+    }
+
+    @Test
+    void stop_ShouldReportRepeatedStatement_WhenLazyRowsAreLoadedOneByOne() {
+        // Given
+        counter.start();
+        counter.inspect("select t.id, t.user_id from tweet t");
+        for (int id = 1; id <= 5; id++) {
+            counter.inspect("select u.id, u.username from user u where u.id = ?");
+        }
+
+        // When
+        SqlStatementCounter.Statements statements = counter.stop();
+
+        // Then
+        Map.Entry<String, Integer> mostRepeated = statements.mostRepeated();
+        assertEquals(6, statements.total());
+        assertEquals("select u.id, u.username from user u where u.id = ?", mostRepeated.getKey());
+        assertEquals(5, mostRepeated.getValue());
+    }
+
+    @Test
+    void inspect_ShouldNotCount_OutsideStartedScope() {
+        // When
+        String sql = counter.inspect("select 1");
+
+        // Then
+        assertEquals("select 1", sql);
+        assertEquals(0, counter.stop().total());
+        assertNull(counter.stop().mostRepeated());
+    }
+
+    @Test
+    void inspect_ShouldCountTowardsEveryOpenScope_WhenScopesAreNested() {
+        // Given
+        counter.start();
+        counter.inspect("select 1");
+        counter.start();
+        counter.inspect("select 2");
+
+        // When
+        SqlStatementCounter.Statements inner = counter.stop();
+        SqlStatementCounter.Statements outer = counter.stop();
+
+        // Then
+        assertEquals(1, inner.total());
+        assertEquals(2, outer.total());
+    }
+}
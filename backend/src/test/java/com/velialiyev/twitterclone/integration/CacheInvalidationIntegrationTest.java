@@ -0,0 +1,233 @@
+package com.velialiyev.twitterclone.integration;
+
+import com.velialiyev.twitterclone.TestDataSetup;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.entity.TweetType;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import com.velialiyev.twitterclone.repository.TweetRepository;
+import com.velialiyev.twitterclone.service.CacheInvalidationLog;
+import com.velialiyev.twitterclone.service.CacheInvalidationPoller;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import com.velialiyev.twitterclone.service.UserProfileCache;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plays another instance by writing {@code cache_invalidation} records with a foreign origin, and checks that a poll
+ * applies them to this instance's caches.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestDataSetup.class)
+class CacheInvalidationIntegrationTest {
+
+    private static final String OTHER_INSTANCE = "other-instance";
+
+    @Autowired
+    private TestDataSetup testDataSetup;
+
+    @Autowired
+    private CacheInvalidationLog cacheInvalidationLog;
+
+    @Autowired
+    private CacheInvalidationPoller cacheInvalidationPoller;
+
+    @Autowired
+    private FeedVersions feedVersions;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private TweetRepository tweetRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Cache secondLevelCache;
+    private UserEntity user;
+    private TweetEntity tweet;
+
+    @BeforeEach
+    void setUp() {
+        user = testDataSetup.createTestUser("invalidated", "invalidated@example.com");
+        tweet = testDataSetup.createTestTweet(user, "Invalidated tweet", TweetType.TWEET);
+        secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cacheInvalidationPoller.poll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDataSetup.cleanupTestData();
+    }
+
+    @Test
+    void poll_ShouldBumpFeed_WhenOtherInstanceBumpedIt() {
+        // Given
+        String eTag = feedVersions.eTag(FeedVersions.GLOBAL, "");
+
+        // When
+        insert(OTHER_INSTANCE, "FEED", null, FeedVersions.GLOBAL);
+        cacheInvalidationPoller.poll();
+
+        // Then
+        assertNotEquals(eTag, feedVersions.eTag(FeedVersions.GLOBAL, ""));
+    }
+
+    @Test
+    void poll_ShouldEvictTweetAndProfile_WhenOtherInstanceChangedThem() {
+        // Given
+        tweetRepository.findById(tweet.getId()).orElseThrow();
+        userProfileCache.findByUsername("invalidated").orElseThrow();
+        assertTrue(secondLevelCache.containsEntity(TweetEntity.class, tweet.getId()));
+        assertTrue(secondLevelCache.containsEntity(UserEntity.class, user.getId()));
+        int profiles = userProfileCache.size();
+
+        // When
+        insert(OTHER_INSTANCE, "TWEET", tweet.getId(), null);
+        insert(OTHER_INSTANCE, "USER", user.getId(), "invalidated");
+        cacheInvalidationPoller.poll();
+
+        // Then
+        assertFalse(secondLevelCache.containsEntity(TweetEntity.class, tweet.getId()));
+        assertFalse(secondLevelCache.containsEntity(UserEntity.class, user.getId()));
+        assertEquals(profiles - 1, userProfileCache.size());
+    }
+
+    @Test
+    void poll_ShouldDropCachedListResults_WhenOtherInstanceBumpedFeed() {
+        // Given
+        tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        insert(OTHER_INSTANCE, "FEED", null, FeedVersions.tab("tweets", "invalidated"));
+        cacheInvalidationPoller.poll();
+        tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow();
+
+        // Then
+        assertEquals(0, statistics.getQueryCacheHitCount());
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    void poll_ShouldKeepCachedTweetLists_WhenOtherInstanceChangedOnlyLikes() {
+        // Given
+        tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        insert(OTHER_INSTANCE, "FEED", null, FeedVersions.tab("likes", "invalidated"));
+        cacheInvalidationPoller.poll();
+        tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow();
+
+        // Then
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(0, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    void poll_ShouldSkipOwnRecords() {
+        // Given
+        tweetRepository.findById(tweet.getId()).orElseThrow();
+
+        // When
+        cacheInvalidationLog.tweet(tweet.getId());
+        cacheInvalidationPoller.poll();
+
+        // Then: this instance's own cache was updated by the change itself
+        assertTrue(secondLevelCache.containsEntity(TweetEntity.class, tweet.getId()));
+    }
+
+    @Test
+    void poll_ShouldApplySkippedRecord_WhenItsTransactionCommitsLate() {
+        // Given: a record committed above one whose transaction is still open
+        String eTag = feedVersions.eTag("late", "");
+        insert(OTHER_INSTANCE, "FEED", null, "late");
+        long late = cacheInvalidationLog.maxId();
+        insert(OTHER_INSTANCE, "FEED", null, "early");
+        jdbcTemplate.update("DELETE FROM cache_invalidation WHERE id = ?", late);
+        cacheInvalidationPoller.poll();
+        assertEquals(1, cacheInvalidationPoller.gaps());
+        assertEquals(eTag, feedVersions.eTag("late", ""));
+
+        // When
+        jdbcTemplate.update("INSERT INTO cache_invalidation (id, origin, kind, cache_key, created_at) VALUES (?, ?, 'FEED', 'late', ?)",
+                late, OTHER_INSTANCE, Timestamp.from(Instant.now()));
+        cacheInvalidationPoller.poll();
+
+        // Then
+        assertNotEquals(eTag, feedVersions.eTag("late", ""));
+        assertEquals(0, cacheInvalidationPoller.gaps());
+    }
+
+    @Test
+    void bump_ShouldWriteRecordOnCommitOnly() {
+        // Given
+        long before = cacheInvalidationLog.maxId();
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> {
+            feedVersions.bump("rolled-back");
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            feedVersions.bump("committed");
+            feedVersions.bump("committed");
+        });
+
+        // Then
+        List<CacheInvalidationLog.Invalidation> written = cacheInvalidationLog.readAfter(before, 10);
+        assertEquals(1, written.size());
+        assertEquals("committed", written.get(0).getKey());
+        assertEquals(cacheInvalidationLog.origin(), written.get(0).getOrigin());
+    }
+
+    @Test
+    void compact_ShouldDeleteRecordsOlderThanRetention() {
+        // Given
+        long before = cacheInvalidationLog.maxId();
+        jdbcTemplate.update("INSERT INTO cache_invalidation (origin, kind, cache_key, created_at) VALUES (?, 'FEED', 'old', ?)",
+                OTHER_INSTANCE, Timestamp.from(Instant.now().minus(Duration.ofDays(1))));
+        insert(OTHER_INSTANCE, "FEED", null, "recent");
+
+        // When
+        cacheInvalidationPoller.compact();
+
+        // Then
+        List<CacheInvalidationLog.Invalidation> left = cacheInvalidationLog.readAfter(before, 10);
+        assertEquals(1, left.size());
+        assertEquals("recent", left.get(0).getKey());
+    }
+
+    private void insert(String origin, String kind, Long entityId, String key) {
+        jdbcTemplate.update("INSERT INTO cache_invalidation (origin, kind, entity_id, cache_key, created_at) VALUES (?, ?, ?, ?, ?)",
+                origin, kind, entityId, key, Timestamp.from(Instant.now()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.velialiyev.twitterclone.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Starts the application with the {@code fast-startup} profile: beans are created on first use, except for the
+ * scheduled jobs, and Swagger is left out.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "fast-startup"})
+class FastStartupIntegrationTest {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void startup_ShouldCreateOnlyScheduledBeans() {
+        // When
+        boolean tweetServiceCreated = context.getBeanFactory().containsSingleton("tweetService");
+        boolean garbageCollectorCreated = context.getBeanFactory().containsSingleton("mediaGarbageCollector");
+
+        // Then
+        assertFalse(tweetServiceCreated);
+        assertTrue(garbageCollectorCreated);
+        assertEquals(0, context.getBeanNamesForType(Docket.class).length);
+    }
+
+    @Test
+    void health_ShouldBeUp() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.velialiyev.twitterclone.integration;
+
+import com.velialiyev.twitterclone.QueryBudget;
+import com.velialiyev.twitterclone.TestDataSetup;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.entity.TweetType;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statement and allocation budgets for the read endpoints. Every user has a tweet of their own so that
+ * statements issued once per row, such as lazily loaded authors, exceed the budgets. The allocation budgets are about
+ * a quarter above what each request allocated on JDK 17 once the endpoints had run before.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestDataSetup.class)
+class QueryBudgetIntegrationTest {
+
+    private static final int USERS = 10;
+
+    // set once the endpoints have run, so that the budgets do not pay for initializing the web layer and serializers
+    private static boolean warmedUp;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestDataSetup testDataSetup;
+
+    @Autowired
+    private FeedVersions feedVersions;
+
+    private TweetEntity firstTweet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        if (!warmedUp) {
+            warmUp();
+            warmedUp = true;
+        }
+        for (int i = 1; i <= USERS; i++) {
+            UserEntity user = testDataSetup.createTestUser("user" + i, "user" + i + "@example.com");
+            TweetEntity tweet = testDataSetup.createTestTweet(user, "Tweet number " + i, TweetType.TWEET);
+            if (firstTweet == null) {
+                firstTweet = tweet;
+            }
+            testDataSetup.createTestLike(user, firstTweet);
+        }
+        // data was created through the repositories, so cached feeds from earlier tests must not be reused
+        feedVersions.bumpAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDataSetup.cleanupTestData();
+    }
+
+    @Test
+    @QueryBudget(max = 3, maxAllocatedBytes = 672 * 1024)
+    void getAll_ShouldStayWithinBudget() throws Exception {
+        mockMvc.perform(get("/posts").with(user()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(USERS)));
+    }
+
+    @Test
+    @QueryBudget(max = 2, maxAllocatedBytes = 416 * 1024)
+    void getTweetsByUsername_ShouldStayWithinBudget() throws Exception {
+        mockMvc.perform(get("/posts/tweets-by-username/user1").with(user()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @QueryBudget(max = 4, maxAllocatedBytes = 512 * 1024)
+    void getLikedByUsername_ShouldStayWithinBudget() throws Exception {
+        mockMvc.perform(get("/posts/liked-by-username/user2").with(user()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @QueryBudget(max = 2, maxAllocatedBytes = 384 * 1024)
+    void getTweet_ShouldStayWithinBudget() throws Exception {
+        mockMvc.perform(get("/posts/tweet/" + firstTweet.getId()).with(user()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likeCounter").value(0));
+    }
+
+    @Test
+    @QueryBudget(max = 1, maxAllocatedBytes = 448 * 1024)
+    void getUser_ShouldStayWithinBudget() throws Exception {
+        mockMvc.perform(get("/user/user1").with(user()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("user1"));
+    }
+
+    @Test
+    @QueryBudget(max = 1, maxAllocatedBytes = 768 * 1024)
+    void getUser_ShouldReturnNotFoundFromCache_WhenUnknownUserIsProbedAgain() throws Exception {
+        mockMvc.perform(get("/user/nobody").with(user())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/user/nobody").with(user())).andExpect(status().isNotFound());
+        mockMvc.perform(get("/posts/tweets-by-username/nobody").with(user())).andExpect(status().isNotFound());
+    }
+
+    private void warmUp() throws Exception {
+        UserEntity user = testDataSetup.createTestUser("warmup", "warmup@example.com");
+        TweetEntity tweet = testDataSetup.createTestTweet(user, "Warm-up tweet", TweetType.TWEET);
+        testDataSetup.createTestLike(user, tweet);
+        RequestPostProcessor signedIn = jwt().jwt(token -> token.subject("warmup"));
+        mockMvc.perform(get("/posts").with(signedIn)).andExpect(status().isOk()).andExpect(jsonPath("$").isArray());
+        mockMvc.perform(get("/posts/tweets-by-username/warmup").with(signedIn)).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(1)));
+        mockMvc.perform(get("/posts/liked-by-username/warmup").with(signedIn)).andExpect(status().isOk());
+        mockMvc.perform(get("/posts/tweet/" + tweet.getId()).with(signedIn)).andExpect(status().isOk());
+        mockMvc.perform(get("/user/warmup").with(signedIn)).andExpect(status().isOk()).andExpect(jsonPath("$.username").value("warmup"));
+        mockMvc.perform(get("/user/unknown-warmup").with(signedIn)).andExpect(status().isNotFound());
+        testDataSetup.cleanupTestData();
+    }
+
+    private static RequestPostProcessor user() {
+        return jwt().jwt(token -> token.subject("user1"));
+    }
+}
@@ -0,0 +1,180 @@
+package com.velialiyev.twitterclone.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.velialiyev.twitterclone.TestDataSetup;
+import com.velialiyev.twitterclone.config.ReplicaDataSourceConfig;
+import com.velialiyev.twitterclone.datasource.ReplicaLagMonitor;
+import com.velialiyev.twitterclone.datasource.ReplicaRoutingDataSource;
+import com.velialiyev.twitterclone.dto.SignUpRequestDto;
+import com.velialiyev.twitterclone.service.CacheInvalidationPoller;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import com.velialiyev.twitterclone.service.JwtService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Starts the application with two H2 replicas next to the H2 primary, and checks which database the transactions of
+ * the application's own transaction manager reach. The replicas get the schema but no rows, which stands in for a
+ * replica that has not caught up yet.
+ */
+@SpringBootTest(properties = {
+        "datasource.replica.urls=jdbc:h2:mem:replica-0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:replica-1;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=4"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestDataSetup.class)
+class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TestDataSetup testDataSetup;
+
+    @Autowired
+    private CacheInvalidationPoller cacheInvalidationPoller;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // the replicas are empty databases, so their heartbeat is written here instead of being replicated
+        replicaRoutingDataSource.getResolvedDataSources().forEach((name, replica) -> {
+            if (!ReplicaRoutingDataSource.PRIMARY.equals(name)) {
+                Flyway.configure().dataSource(replica).locations("classpath:db/migration/h2").load().migrate();
+                JdbcTemplate replicaTemplate = new JdbcTemplate(replica);
+                replicaTemplate.execute("CREATE TABLE IF NOT EXISTS replication_heartbeat (id INT PRIMARY KEY, beat BIGINT NOT NULL)");
+                replicaTemplate.update("MERGE INTO replication_heartbeat (id, beat) KEY (id) VALUES (1, ?)", System.currentTimeMillis());
+            }
+        });
+        replicaLagMonitor.check();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDataSetup.cleanupTestData();
+    }
+
+    @Test
+    void dataSource_ShouldRouteThroughReplicas_WithPoolSettingsOnEveryPool() {
+        // Then
+        assertInstanceOf(LazyConnectionDataSourceProxy.class, dataSource);
+        assertSame(replicaRoutingDataSource, ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource());
+        assertEquals(3, replicaRoutingDataSource.getResolvedDataSources().size());
+        replicaRoutingDataSource.getResolvedDataSources().values().forEach(pool ->
+                assertEquals(4, ((HikariDataSource) pool).getMaximumPoolSize()));
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseEachReplica_AndWritesThePrimary() {
+        // Given
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        // When
+        Set<String> readFrom = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            readFrom.add(readOnly.execute(status -> database()));
+        }
+        String writtenTo = readWrite.execute(status -> database());
+
+        // Then
+        assertEquals(Set.of("REPLICA-0", "REPLICA-1"), readFrom);
+        assertEquals("TESTDB", writtenTo);
+    }
+
+    @Test
+    void write_ShouldHandClientItsCommitTime() throws Exception {
+        // Given
+        SignUpRequestDto signUpRequest = SignUpRequestDto.builder()
+                .firstName("Pinned")
+                .lastName("Writer")
+                .username("pinned")
+                .email("pinned@example.com")
+                .password("password123")
+                .build();
+
+        // When & Then
+        mockMvc.perform(post("/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(signUpRequest)))
+                .andExpect(status().isOk())
+                .andExpect(cookie().exists(ReplicaDataSourceConfig.LAST_WRITE_COOKIE))
+                .andExpect(cookie().httpOnly(ReplicaDataSourceConfig.LAST_WRITE_COOKIE, true));
+    }
+
+    @Test
+    void feed_ShouldHaveNoETag_WhileReplicasMayBeBehindAnotherInstancesChange() throws Exception {
+        // Given
+        String token = "Bearer " + jwtService.generateTokenWithUsername("reader");
+        cacheInvalidationPoller.poll();
+        jdbcTemplate.update("INSERT INTO cache_invalidation (origin, kind, cache_key, created_at) VALUES ('other-instance', 'FEED', ?, ?)",
+                FeedVersions.GLOBAL, Timestamp.from(Instant.now()));
+        cacheInvalidationPoller.poll();
+
+        // When & Then
+        mockMvc.perform(get("/posts").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+        // When the client wrote recently, it reads from the primary
+        mockMvc.perform(get("/posts")
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .cookie(new Cookie(ReplicaDataSourceConfig.LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis()))))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("SELECT DATABASE()", String.class);
+    }
+}
@@ -0,0 +1,202 @@
+package com.velialiyev.twitterclone.integration;
+
+import com.velialiyev.twitterclone.TestDataSetup;
+import com.velialiyev.twitterclone.config.SecondLevelCacheConfig;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.entity.TweetType;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import com.velialiyev.twitterclone.repository.LikeRepository;
+import com.velialiyev.twitterclone.repository.TweetRepository;
+import com.velialiyev.twitterclone.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads users, tweets and repository list queries through the second-level cache, each in a transaction of its own
+ * as requests do, and checks that updates are seen by the next read.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestDataSetup.class)
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private TestDataSetup testDataSetup;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TweetRepository tweetRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private UserEntity user;
+    private TweetEntity tweet;
+
+    @BeforeEach
+    void setUp() {
+        user = testDataSetup.createTestUser("cached", "cached@example.com");
+        tweet = testDataSetup.createTestTweet(user, "Cached tweet", TweetType.TWEET);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDataSetup.cleanupTestData();
+    }
+
+    @Test
+    void findByUsername_ShouldRunNoQuery_WhenUserWasReadBefore() {
+        // Given
+        userRepository.findByUsername("cached").orElseThrow();
+        statistics.clear();
+
+        // When
+        UserEntity found = userRepository.findByUsername("cached").orElseThrow();
+
+        // Then
+        assertEquals(user.getId(), found.getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics(SecondLevelCacheConfig.USER_REGION).getHitCount());
+    }
+
+    @Test
+    void findByUsername_ShouldReturnEmpty_WhenUserDoesNotExist() {
+        assertTrue(userRepository.findByUsername("nobody").isEmpty());
+    }
+
+    @Test
+    void findById_ShouldReturnUpdatedCounter_WithoutQuery_WhenTweetWasLiked() {
+        // Given
+        transactionTemplate.executeWithoutResult(status -> {
+            TweetEntity liked = tweetRepository.findById(tweet.getId()).orElseThrow();
+            liked.setLikeCounter(liked.getLikeCounter() + 1);
+        });
+        statistics.clear();
+
+        // When
+        TweetEntity found = tweetRepository.findById(tweet.getId()).orElseThrow();
+
+        // Then: the update replaced the cached tweet rather than dropping it
+        assertEquals(1, found.getLikeCounter());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByUsername_ShouldReturnNewPicture_WhenPictureWasUpdated() {
+        // Given
+        userRepository.findByUsername("cached").orElseThrow();
+
+        // When
+        userRepository.updateProfilePicture("cached", "abc123", Instant.now());
+
+        // Then
+        assertEquals("abc123", userRepository.findByUsername("cached").orElseThrow().getProfilePictureHash());
+    }
+
+    @Test
+    void findByEmail_ShouldUseQueryCache_WhenAskedTwice() {
+        // Given
+        userRepository.findByEmail("cached@example.com").orElseThrow();
+        statistics.clear();
+
+        // When
+        UserEntity found = userRepository.findByEmail("cached@example.com").orElseThrow();
+
+        // Then
+        assertEquals(user.getId(), found.getId());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findAllByUserAndType_ShouldRunNoQuery_WhenAskedTwice() {
+        // Given
+        tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow();
+        statistics.clear();
+
+        // When
+        List<TweetEntity> found = tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow();
+
+        // Then: the cached result names the tweet, which comes from the tweet region
+        assertEquals(List.of(tweet.getId()), ids(found));
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, meterRegistry.get("repository.query.cache.requests")
+                .tag("method", SecondLevelCacheConfig.TWEETS_BY_USER_AND_TYPE_REGION).tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void findAllByUserAndType_ShouldReturnNewTweet_WhenTweetWasSavedSinceCached() {
+        // Given
+        tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow();
+
+        // When
+        TweetEntity newer = testDataSetup.createTestTweet(user, "Newer tweet", TweetType.TWEET);
+
+        // Then
+        assertEquals(List.of(tweet.getId(), newer.getId()), ids(tweetRepository.findAllByUserAndType(user, TweetType.TWEET).orElseThrow()));
+    }
+
+    @Test
+    void findAllByUser_ShouldRunNoQuery_WhenLikesWereReadBefore() {
+        // Given
+        testDataSetup.createTestLike(user, tweet);
+        likeRepository.findAllByUser(user).orElseThrow();
+        statistics.clear();
+
+        // When
+        int likes = likeRepository.findAllByUser(user).orElseThrow().size();
+
+        // Then
+        assertEquals(1, likes);
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findAllByUser_ShouldReturnNoLike_WhenLikeWasDeletedSinceCached() {
+        // Given
+        testDataSetup.createTestLike(user, tweet);
+        likeRepository.findAllByUser(user).orElseThrow();
+
+        // When
+        likeRepository.deleteAll();
+
+        // Then
+        assertTrue(likeRepository.findAllByUser(user).orElseThrow().isEmpty());
+    }
+
+    private static List<Long> ids(List<TweetEntity> tweets) {
+        return tweets.stream().map(TweetEntity::getId).collect(Collectors.toList());
+    }
+}
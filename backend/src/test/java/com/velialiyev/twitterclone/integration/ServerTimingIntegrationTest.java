@@ -0,0 +1,99 @@
+package com.velialiyev.twitterclone.integration;
+
+import com.velialiyev.twitterclone.TestDataSetup;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.entity.TweetType;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import com.velialiyev.twitterclone.service.FeedVersions;
+import com.velialiyev.twitterclone.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the {@code Server-Timing} header covers every phase of a request, with a real bearer token so that
+ * JWT decoding is part of it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(TestDataSetup.class)
+class ServerTimingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestDataSetup testDataSetup;
+
+    @Autowired
+    private FeedVersions feedVersions;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private TweetEntity tweet;
+
+    @BeforeEach
+    void setUp() {
+        UserEntity user = testDataSetup.createTestUser("timed", "timed@example.com");
+        tweet = testDataSetup.createTestTweet(user, "Timed tweet", TweetType.TWEET);
+        feedVersions.bumpAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDataSetup.cleanupTestData();
+    }
+
+    @Test
+    void getAll_ShouldReturnServerTimingForEveryPhase() throws Exception {
+        mockMvc.perform(get("/posts").header("Authorization", bearer()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", allOf(startsWith("jwt;dur="),
+                        containsString("db;dur="), containsString("map;dur="),
+                        containsString("serialize;dur="), containsString("total;dur="))));
+    }
+
+    @Test
+    void isLiked_ShouldTimeLoadingTheSignedInUser() throws Exception {
+        mockMvc.perform(post("/likes/is-liked").header("Authorization", bearer())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tweetId\":" + tweet.getId() + "}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", containsString("user;dur=")));
+    }
+
+    @Test
+    void request_ShouldNotReturnServerTiming_WhenUnauthorized() throws Exception {
+        mockMvc.perform(get("/posts").header("Authorization", "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().doesNotExist("Server-Timing"));
+    }
+
+    @Test
+    void request_ShouldNotReturnServerTiming_WhenAnonymous() throws Exception {
+        mockMvc.perform(get("/v2/api-docs"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Server-Timing"));
+    }
+
+    private String bearer() {
+        return "Bearer " + jwtService.generateTokenWithUsername("timed");
+    }
+}
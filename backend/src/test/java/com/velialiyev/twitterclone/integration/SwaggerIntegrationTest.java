@@ -0,0 +1,39 @@
+package com.velialiyev.twitterclone.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the API documentation and the actuator endpoints are both served from the same context.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SwaggerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void apiDocs_ShouldDocumentControllersOnly() throws Exception {
+        mockMvc.perform(get("/v2/api-docs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.paths['/auth/sign-in']").exists())
+                .andExpect(jsonPath("$.paths['/actuator/health']").doesNotExist());
+    }
+
+    @Test
+    void health_ShouldBeUp_WhenSwaggerIsEnabled() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+    }
+}
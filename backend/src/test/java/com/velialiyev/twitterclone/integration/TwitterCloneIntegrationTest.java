@@ -53,8 +53,6 @@ class TwitterCloneIntegrationTest {
                 .username("testuser")
                 .email("test@example.com")
                 .password(passwordEncoder.encode("password123"))
-                .profilePicturePath("test-profile.jpg")
-                .bannerPicturePath("test-banner.jpg")
                 .build();
 
         userRepository.save(testUser);
@@ -0,0 +1,76 @@
+package com.velialiyev.twitterclone.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the H2 migrations, which Hibernate then validates against the entities, and checks that every repository
+ * query is answered from an index rather than a table scan.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class SchemaMigrationTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrate_ShouldApplyEveryVersion() {
+        // When
+        MigrationInfo[] applied = flyway.info().applied();
+
+        // Then
+        List<String> versions = Arrays.stream(applied).map(info -> info.getVersion().getVersion()).collect(Collectors.toList());
+        assertEquals(List.of("1", "2", "3"), versions);
+        assertTrue(Arrays.stream(applied).allMatch(info -> info.getState() == MigrationState.SUCCESS));
+        assertEquals(0, flyway.info().pending().length);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "TweetRepository.findAllByUserAndType | SELECT * FROM tweet_entity WHERE user_id = 1 AND type = 0 | IDX_TWEET_USER_TYPE_CREATED",
+            "TweetRepository.findAllByTweetAndType | SELECT * FROM tweet_entity WHERE tweet_id = 1 AND type = 1 | IDX_TWEET_PARENT_TYPE",
+            "TweetRepository.findAllByType | SELECT * FROM tweet_entity WHERE type = 0 | IDX_TWEET_TYPE_CREATED",
+            "LikeRepository.findByUserAndTweet | SELECT * FROM like_entity WHERE user_id = 1 AND tweet_id = 2 | IDX_LIKE_USER_TWEET",
+            "LikeRepository.findAllByUser | SELECT * FROM like_entity WHERE user_id = 1 | IDX_LIKE_USER_TWEET",
+            "RetweetRepository.findByUserAndTweet | SELECT * FROM retweet_entity WHERE user_id = 1 AND tweet_id = 2 | IDX_RETWEET_USER_TWEET",
+            "RetweetRepository.findAllByUser | SELECT * FROM retweet_entity WHERE user_id = 1 | IDX_RETWEET_USER_TWEET",
+            "RetweetRepository.findAllByTweet | SELECT * FROM retweet_entity WHERE tweet_id = 2 | FKLOHF0YC0DWC51BDE1X2EBVBB8",
+            "BookmarkRepository.findByUserAndTweet | SELECT * FROM bookmark_entity WHERE user_id = 1 AND tweet_id = 2 | IDX_BOOKMARK_USER_TWEET",
+            "BookmarkRepository.findAllByUser | SELECT * FROM bookmark_entity WHERE user_id = 1 | IDX_BOOKMARK_USER_TWEET",
+            "RefreshTokenRepository.findByRefreshToken | SELECT * FROM refresh_token_entity WHERE refresh_token = 'token' | IDX_REFRESH_TOKEN",
+            "RefreshTokenRepository.deleteByRefreshToken | DELETE FROM refresh_token_entity WHERE refresh_token = 'token' | IDX_REFRESH_TOKEN",
+            "UserRepository.findByEmail | SELECT * FROM user_entity WHERE email = 'john@example.com' | IDX_USER_EMAIL",
+            "UserRepository.findByUsername | SELECT * FROM user_entity WHERE username = 'john' | UK_2JSK4EAKD0RMVYBO409WGWXUW",
+            "UserRepository.findAllProfilePictureHashes | SELECT profile_picture_hash FROM user_entity WHERE profile_picture_hash IS NOT NULL | IDX_USER_PROFILE_PICTURE_HASH",
+            "UserRepository.findAllBannerPictureHashes | SELECT banner_picture_hash FROM user_entity WHERE banner_picture_hash IS NOT NULL | IDX_USER_BANNER_PICTURE_HASH",
+            "UserRepository.updateProfilePicture | UPDATE user_entity SET profile_picture_hash = 'hash' WHERE username = 'john' | UK_2JSK4EAKD0RMVYBO409WGWXUW",
+            "CacheInvalidationLog.deleteOlderThan | DELETE FROM cache_invalidation WHERE created_at < TIMESTAMP '2020-01-01 00:00:00' | IDX_CACHE_INVALIDATION_CREATED"
+    })
+    void query_ShouldUseIndex(String query, String sql, String index) {
+        // When
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+
+        // Then
+        assertNotNull(plan);
+        assertTrue(plan.contains("PUBLIC." + index), query + " should use " + index + " but the plan is " + plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+}
@@ -37,8 +37,6 @@ class TweetRepositoryTest {
                 .username("johndoe")
                 .email("john@example.com")
                 .password("encodedPassword")
-                .profilePicturePath("profile.jpg")
-                .bannerPicturePath("banner.jpg")
                 .build();
 
         tweetEntity = TweetEntity.builder()
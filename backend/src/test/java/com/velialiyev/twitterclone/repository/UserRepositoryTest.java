@@ -33,8 +33,6 @@ class UserRepositoryTest {
                 .username("johndoe")
                 .email("john@example.com")
                 .password("encodedPassword")
-                .profilePicturePath("profile.jpg")
-                .bannerPicturePath("banner.jpg")
                 .build();
     }
 
@@ -49,6 +49,15 @@ class AuthenticationServiceTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private RequestTracer requestTracer;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private CacheInvalidationLog cacheInvalidationLog;
+
     @InjectMocks
     private AuthenticationService authenticationService;
 
@@ -235,9 +244,10 @@ class AuthenticationServiceTest {
         authenticationService.signup(signUpRequestDto);
 
         // Then
+        // Users without an upload of their own are served the shared default blobs
         verify(userRepository, times(1)).save(argThat(user -> 
-            user.getProfilePicturePath().equals("C:/uploads/DummyProfilePicture.jpg") &&
-            user.getBannerPicturePath().equals("C:/uploads/DummyBannerPicture.jpg")
+            user.getProfilePictureHash() == null &&
+            user.getBannerPictureHash() == null
         ));
     }
 
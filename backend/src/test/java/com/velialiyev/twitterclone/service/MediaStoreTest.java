@@ -0,0 +1,105 @@
+package com.velialiyev.twitterclone.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaStoreTest {
+
+    @TempDir
+    Path storageDirectory;
+
+    private MediaStore mediaStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(storageDirectory.resolve("DummyProfilePicture.jpg"), "default");
+        mediaStore = new MediaStore(storageDirectory + "/",
+                storageDirectory.resolve("DummyProfilePicture.jpg").toString(),
+                storageDirectory.resolve("DummyBannerPicture.jpg").toString(),
+                List.of(48, 128),
+                new PackStore(false, storageDirectory + "/", DataSize.ofKilobytes(64), DataSize.ofMegabytes(1), 0.5));
+        mediaStore.importDefaults();
+    }
+
+    @Test
+    void store_ShouldWriteShardedBlobNamedByHash() throws IOException {
+        // When
+        String hash = store("picture");
+
+        // Then
+        Path blob = mediaStore.resolve(hash);
+        assertEquals(MediaStore.hash("picture".getBytes(StandardCharsets.UTF_8)), hash);
+        assertEquals(hash.substring(0, 2), blob.getParent().getParent().getFileName().toString());
+        assertEquals(hash.substring(2, 4), blob.getParent().getFileName().toString());
+        assertEquals("picture", Files.readString(blob));
+    }
+
+    @Test
+    void store_ShouldDeduplicate_WhenContentIsIdentical() throws IOException {
+        // When
+        String first = store("same");
+        String second = store("same");
+
+        // Then
+        assertEquals(first, second);
+        try (Stream<Path> blobs = mediaStore.blobs()) {
+            assertEquals(2, blobs.count()); // the upload plus the default profile picture
+        }
+    }
+
+    @Test
+    void store_ShouldRefreshBlobAge_WhenContentIsIdentical() throws IOException {
+        // Given: a blob old enough for the media sweep
+        String hash = store("same");
+        Instant old = Instant.now().minus(Duration.ofDays(1));
+        Files.setLastModifiedTime(mediaStore.resolve(hash), FileTime.from(old));
+
+        // When
+        store("same");
+
+        // Then
+        assertTrue(Files.getLastModifiedTime(mediaStore.resolve(hash)).toInstant().isAfter(old.plus(Duration.ofHours(1))));
+    }
+
+    @Test
+    void importDefaults_ShouldStoreDefaultsAsSharedBlobs_WhenFilesExist() {
+        // Then
+        assertEquals(MediaStore.hash("default".getBytes(StandardCharsets.UTF_8)), mediaStore.getDefaultProfilePictureHash());
+        assertNull(mediaStore.getDefaultBannerPictureHash());
+    }
+
+    @Test
+    void store_ShouldRejectAndLeaveNoBlob_WhenContentExceedsLimit() throws IOException {
+        // When
+        assertThrows(ResponseStatusException.class,
+                () -> mediaStore.store(new ByteArrayInputStream("too large".getBytes(StandardCharsets.UTF_8)), 4));
+
+        // Then
+        try (Stream<Path> blobs = mediaStore.blobs()) {
+            assertEquals(1, blobs.count()); // only the default profile picture
+        }
+        try (Stream<Path> temp = Files.list(storageDirectory.resolve("tmp"))) {
+            assertEquals(0, temp.count());
+        }
+    }
+
+    private String store(String content) throws IOException {
+        return mediaStore.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), Long.MAX_VALUE);
+    }
+}
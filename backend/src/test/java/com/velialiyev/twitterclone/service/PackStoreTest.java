@@ -0,0 +1,184 @@
+package com.velialiyev.twitterclone.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackStoreTest {
+
+    @TempDir
+    Path storageDirectory;
+
+    private PackStore packStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        packStore = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        packStore.close();
+    }
+
+    @Test
+    void read_ShouldReturnMappedContent_WhenBlobIsPacked() throws IOException {
+        // Given
+        put("a", "first");
+        put("b", "second");
+
+        // Then
+        assertEquals("first", read("a"));
+        assertEquals("second", read("b"));
+        assertTrue(packStore.read("b").isReadOnly());
+        assertNull(packStore.read("missing"));
+    }
+
+    @Test
+    void open_ShouldRebuildIndexAndHonourDeletes_WhenReopened() throws IOException {
+        // Given
+        put("a", "first");
+        put("b", "second");
+        put("a", "replaced");
+        packStore.delete("b");
+
+        // When
+        packStore.close();
+        packStore = open();
+
+        // Then
+        assertEquals("replaced", read("a"));
+        assertFalse(packStore.contains("b"));
+    }
+
+    @Test
+    void touch_ShouldRestampCreationTime_WhenBlobIsPacked() throws IOException {
+        // Given
+        put("a", "first");
+        long created = packStore.entries().get("a");
+
+        // When
+        boolean touched = packStore.touch("a");
+
+        // Then
+        assertTrue(touched);
+        assertTrue(packStore.entries().get("a") >= created);
+        assertEquals("first", read("a"));
+        assertFalse(packStore.touch("missing"));
+    }
+
+    @Test
+    void open_ShouldTruncatePartialRecord_WhenLastAppendWasTorn() throws IOException {
+        // Given
+        put("a", "first");
+        packStore.close();
+        Path segment = storageDirectory.resolve("packs").resolve("segment-000001.pack");
+        long intact = Files.size(segment);
+        Files.write(segment, new byte[]{0, 5, 'b', 'r'}, StandardOpenOption.APPEND);
+
+        // When
+        packStore = open();
+        put("c", "third");
+
+        // Then
+        assertEquals("first", read("a"));
+        assertEquals("third", read("c"));
+        assertTrue(Files.size(segment) > intact);
+    }
+
+    @Test
+    void compact_ShouldMoveLiveBlobsAndDeleteSegment_WhenMostlyDead() throws IOException {
+        // Given: tiny segments so that every record starts a new one
+        packStore.close();
+        packStore = new PackStore(true, storageDirectory + "/", DataSize.ofKilobytes(64), DataSize.ofBytes(16), 0.5);
+        packStore.open();
+        put("a", "first");
+        put("a", "replaced");
+        put("b", "second");
+
+        // When
+        packStore.compact();
+
+        // Then
+        assertEquals("replaced", read("a"));
+        assertEquals("second", read("b"));
+        try (Stream<Path> segments = Files.list(storageDirectory.resolve("packs"))) {
+            assertFalse(segments.anyMatch(file -> file.endsWith("segment-000001.pack")));
+        }
+    }
+
+    @Test
+    void read_ShouldReturnContent_WhenActiveSegmentGrowsPastMapStep() throws IOException {
+        // Given: 1 MB segments are mapped in 64 KB steps
+        ByteBuffer first = null;
+        for (int i = 0; i < 8; i++) {
+            put("blob" + i, String.valueOf((char) ('a' + i)).repeat(20_000));
+            ByteBuffer read = packStore.read("blob" + i);
+            assertEquals(20_000, read.remaining());
+            if (first == null) {
+                first = read;
+            }
+        }
+
+        // Then
+        for (int i = 0; i < 8; i++) {
+            assertEquals(String.valueOf((char) ('a' + i)).repeat(20_000), read("blob" + i));
+        }
+        assertEquals('a', first.get(19_999));
+    }
+
+    @Test
+    void compact_ShouldKeepTombstone_WhenOlderSegmentStillHoldsDeletedBlob() throws IOException {
+        // Given: 64 byte segments; the first keeps a live blob, the second holds only the tombstone of "a"
+        packStore.close();
+        packStore = new PackStore(true, storageDirectory + "/", DataSize.ofKilobytes(64), DataSize.ofBytes(64), 0.5);
+        packStore.open();
+        put("a", "first");
+        put("k", "k".repeat(25));
+        packStore.delete("a");
+        put("x", "x".repeat(45));
+
+        // When
+        packStore.compact();
+        packStore.close();
+        packStore = open();
+
+        // Then
+        assertFalse(packStore.contains("a"));
+        assertEquals("k".repeat(25), read("k"));
+        assertEquals("x".repeat(45), read("x"));
+        try (Stream<Path> segments = Files.list(storageDirectory.resolve("packs"))) {
+            assertFalse(segments.anyMatch(file -> file.endsWith("segment-000002.pack")));
+        }
+    }
+
+    private PackStore open() throws IOException {
+        PackStore store = new PackStore(true, storageDirectory + "/", DataSize.ofKilobytes(64), DataSize.ofMegabytes(1), 0.5);
+        store.open();
+        return store;
+    }
+
+    private void put(String name, String content) throws IOException {
+        Path file = Files.writeString(Files.createTempFile(storageDirectory, "blob", ".tmp"), content);
+        packStore.put(name, file);
+    }
+
+    private String read(String name) throws IOException {
+        ByteBuffer buffer = packStore.read(name);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
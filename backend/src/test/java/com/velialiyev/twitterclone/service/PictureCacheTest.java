@@ -0,0 +1,62 @@
+package com.velialiyev.twitterclone.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PictureCacheTest {
+
+    private PictureCache pictureCache;
+
+    @BeforeEach
+    void setUp() {
+        pictureCache = new PictureCache(DataSize.ofBytes(100), DataSize.ofBytes(60), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void get_ShouldHitAndMissByBlobName() {
+        // Given
+        pictureCache.put("abc123", buffer(10));
+
+        // Then
+        assertNotNull(pictureCache.get("abc123"));
+        assertNull(pictureCache.get("abc123-48"));
+        assertEquals(0.5, pictureCache.hitRatio());
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsed_WhenBudgetIsExceeded() {
+        // Given
+        pictureCache.put("a", buffer(40));
+        pictureCache.put("b", buffer(40));
+        pictureCache.get("a");
+
+        // When
+        pictureCache.put("c", buffer(40));
+
+        // Then
+        assertNotNull(pictureCache.get("a"));
+        assertNull(pictureCache.get("b"));
+        assertNotNull(pictureCache.get("c"));
+        assertEquals(80, pictureCache.size());
+    }
+
+    @Test
+    void put_ShouldSkipEntriesLargerThanMaxEntrySize() {
+        // When
+        pictureCache.put("a", buffer(70));
+
+        // Then
+        assertNull(pictureCache.get("a"));
+        assertEquals(0, pictureCache.size());
+    }
+
+    private ByteBuffer buffer(int size) {
+        return ByteBuffer.allocateDirect(size);
+    }
+}
@@ -0,0 +1,185 @@
+package com.velialiyev.twitterclone.service;
+
+import com.velialiyev.twitterclone.datasource.ReplicaReads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadCoalescerTest {
+
+    @Test
+    void get_ShouldShareOneLoad_WhenCallersArriveConcurrently() throws Exception {
+        // Given
+        ReadCoalescer coalescer = new ReadCoalescer(Duration.ofMinutes(1), 1.0, 100, 1000, new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        List<Future<String>> results = new ArrayList<>();
+        try {
+            results.add(executor.submit(() -> coalescer.get("feed", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "tweets";
+            })));
+            loading.await();
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> coalescer.get("feed", () -> {
+                    loads.incrementAndGet();
+                    return "duplicate";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            // Then
+            for (Future<String> result : results) {
+                assertEquals("tweets", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_ShouldNotKeepResult_WhenReadFromReplicaThatMayBeBehind() {
+        // Given
+        ReadCoalescer coalescer = new ReadCoalescer(Duration.ofMinutes(1), 1.0, 100, 1000, new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        boolean behind;
+        try (ReplicaReads replicaReads = ReplicaReads.track()) {
+            coalescer.get("feed", "v2", () -> {
+                loads.incrementAndGet();
+                ReplicaReads.markBehind();
+                return "tweets of v1";
+            });
+            behind = replicaReads.isBehind();
+        }
+        String reloaded = coalescer.get("feed", "v2", () -> {
+            loads.incrementAndGet();
+            return "tweets of v2";
+        });
+
+        // Then
+        assertTrue(behind);
+        assertEquals("tweets of v2", reloaded);
+        assertEquals(2, loads.get());
+        assertEquals(1, coalescer.size());
+    }
+
+    @Test
+    void get_ShouldPropagateFailureAndRetry_WhenLoadFails() {
+        // Given
+        ReadCoalescer coalescer = new ReadCoalescer(Duration.ofMinutes(1), 1.0, 100, 1000, new SimpleMeterRegistry());
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> coalescer.get("user", () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertEquals("user", coalescer.get("user", () -> "user"));
+    }
+
+    @Test
+    void get_ShouldRefreshEarly_WhenLoadTimeIsLargeComparedToRemainingLife() {
+        // Given: the value expires in 1 ms but took ~20 ms to load, so XFetch refreshes almost always
+        ReadCoalescer coalescer = new ReadCoalescer(Duration.ofMillis(1), 1.0, 100, 1000, new SimpleMeterRegistry());
+        coalescer.get("tweet", () -> {
+            sleep(20);
+            return "first";
+        });
+
+        // When
+        String value = coalescer.get("tweet", () -> "refreshed");
+
+        // Then
+        assertEquals("refreshed", value);
+    }
+
+    @Test
+    void get_ShouldReuseValue_WhenFarFromExpiry() {
+        // Given
+        ReadCoalescer coalescer = new ReadCoalescer(Duration.ofMinutes(1), 1.0, 100, 1000, new SimpleMeterRegistry());
+        coalescer.get("tweet", () -> "first");
+
+        // When
+        String value = coalescer.get("tweet", () -> "second");
+
+        // Then
+        assertEquals("first", value);
+    }
+
+    @Test
+    void get_ShouldReplaceResultOfOlderVersion() {
+        // Given
+        ReadCoalescer coalescer = new ReadCoalescer(Duration.ofMinutes(1), 1.0, 100, 1000, new SimpleMeterRegistry());
+        coalescer.get("feed", "v1", () -> List.of("a", "b"));
+
+        // When
+        List<String> value = coalescer.get("feed", "v2", () -> List.of("a", "b", "c"));
+
+        // Then
+        assertEquals(List.of("a", "b", "c"), value);
+        assertEquals(1, coalescer.size());
+        assertEquals(3, coalescer.weight());
+    }
+
+    @Test
+    void get_ShouldNotKeepResult_WhenItExceedsWeightBound() {
+        // Given
+        ReadCoalescer coalescer = new ReadCoalescer(Duration.ofMinutes(1), 1.0, 100, 4, new SimpleMeterRegistry());
+        coalescer.get("small", () -> List.of("a", "b", "c"));
+
+        // When
+        coalescer.get("large", () -> List.of("d", "e"));
+
+        // Then
+        assertEquals(1, coalescer.size());
+        assertEquals(3, coalescer.weight());
+        assertEquals(List.of("f", "g"), coalescer.get("large", () -> List.of("f", "g")));
+    }
+
+    @Test
+    void get_ShouldSweepExpiredEntries_WhenStoring() {
+        // Given
+        ReadCoalescer coalescer = new ReadCoalescer(Duration.ofMillis(1), 1.0, 100, 1000, new SimpleMeterRegistry());
+        coalescer.get("first", () -> "first");
+        coalescer.get("second", () -> "second");
+        sleep(5);
+
+        // When
+        coalescer.get("third", () -> "third");
+
+        // Then
+        assertEquals(1, coalescer.size());
+        assertEquals(1, coalescer.weight());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
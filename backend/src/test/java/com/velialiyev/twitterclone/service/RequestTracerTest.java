@@ -0,0 +1,99 @@
+package com.velialiyev.twitterclone.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTracerTest {
+
+    @Test
+    void serverTiming_ShouldSumPhasesAndCountCalls_WhenPhaseRunsRepeatedly() throws Exception {
+        // Given
+        RequestTracer tracer = new RequestTracer(0, 0, null);
+        RequestTracer.Trace trace = tracer.start(true);
+
+        // When
+        try (RequestTracer.Phase phase = tracer.phase("user")) {
+            tracer.record("db", 2_000_000);
+        }
+        for (int i = 0; i < 3; i++) {
+            try (RequestTracer.Phase phase = tracer.phase("map")) {
+                Thread.sleep(1);
+            }
+        }
+        String serverTiming = trace.serverTiming();
+        tracer.finish(trace, "GET /posts", Map.of());
+
+        // Then
+        assertTrue(serverTiming.matches("db;dur=2\\.00, user;dur=\\d+\\.\\d\\d, map;dur=\\d+\\.\\d\\d;desc=\"3 calls\", total;dur=\\d+\\.\\d\\d"),
+                serverTiming);
+        assertFalse(tracer.isTracing());
+    }
+
+    @Test
+    void phase_ShouldCountOnce_WhenReopenedWhileOpen() {
+        // Given
+        RequestTracer tracer = new RequestTracer(0, 0, null);
+        RequestTracer.Trace trace = tracer.start(true);
+
+        // When: a quote is mapped while its quoting tweet is still being mapped
+        try (RequestTracer.Phase outer = tracer.phase("map")) {
+            try (RequestTracer.Phase inner = tracer.phase("map")) {
+                assertNotNull(inner);
+            }
+        }
+
+        // Then
+        assertFalse(trace.serverTiming().contains("calls"), trace.serverTiming());
+        assertTrue(trace.serverTiming().startsWith("map;dur="), trace.serverTiming());
+    }
+
+    @Test
+    void phase_ShouldDoNothing_WhenNoRequestIsTraced() {
+        // Given
+        RequestTracer tracer = new RequestTracer(1, 10, null);
+
+        // When & Then
+        try (RequestTracer.Phase phase = tracer.phase("map")) {
+            tracer.record("db", 1_000);
+            assertFalse(tracer.isTracing());
+        }
+    }
+
+    @Test
+    void finish_ShouldExportSpansToFile_WhenSampled(@TempDir Path directory) throws Exception {
+        // Given
+        Path file = directory.resolve("spans.jsonl");
+        ObjectMapper objectMapper = new ObjectMapper();
+        RequestTracer tracer = new RequestTracer(1, 2, new SpanExporter("twitter-clone", file, null, objectMapper));
+        RequestTracer.Trace trace = tracer.start(true);
+        for (int i = 0; i < 3; i++) {
+            tracer.record("db", 1_000);
+        }
+
+        // When
+        tracer.finish(trace, "GET /posts", Map.of("http.status_code", "200"));
+        tracer.close();
+
+        // Then: the request span and as many phase spans as the limit allows
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        JsonNode root = objectMapper.readTree(lines.get(0));
+        assertEquals("GET /posts", root.get("name").asText());
+        assertEquals("SERVER", root.get("kind").asText());
+        assertEquals("200", root.get("tags").get("http.status_code").asText());
+        assertEquals(32, root.get("traceId").asText().length());
+        JsonNode child = objectMapper.readTree(lines.get(1));
+        assertEquals("db", child.get("name").asText());
+        assertEquals(root.get("id").asText(), child.get("parentId").asText());
+        assertEquals(root.get("traceId").asText(), child.get("traceId").asText());
+    }
+}
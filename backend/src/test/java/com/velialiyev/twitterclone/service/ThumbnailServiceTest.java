@@ -0,0 +1,97 @@
+package com.velialiyev.twitterclone.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailServiceTest {
+
+    @TempDir
+    Path storageDirectory;
+
+    private MediaStore mediaStore;
+    private ThumbnailService thumbnailService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mediaStore = new MediaStore(storageDirectory + "/",
+                storageDirectory.resolve("missing.jpg").toString(),
+                storageDirectory.resolve("missing.jpg").toString(),
+                List.of(48, 128),
+                new PackStore(false, storageDirectory + "/", DataSize.ofKilobytes(64), DataSize.ofMegabytes(1), 0.5));
+        mediaStore.importDefaults();
+        thumbnailService = new ThumbnailService(mediaStore, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void generateVariants_ShouldWriteEachSizePreservingAspectRatio() throws IOException {
+        // Given
+        String hash = mediaStore.store(new ByteArrayInputStream(png(400, 200)), Long.MAX_VALUE);
+
+        // When
+        thumbnailService.generateVariants(hash);
+
+        // Then
+        BufferedImage small = ImageIO.read(mediaStore.resolveVariant(hash, 48).toFile());
+        BufferedImage large = ImageIO.read(mediaStore.resolveVariant(hash, 128).toFile());
+        assertEquals(48, small.getWidth());
+        assertEquals(24, small.getHeight());
+        assertEquals(128, large.getWidth());
+        assertEquals(64, large.getHeight());
+    }
+
+    @Test
+    void closestVariant_ShouldFallBackToOriginal_UntilVariantsExist() throws IOException {
+        // Given
+        String hash = mediaStore.store(new ByteArrayInputStream(png(400, 400)), Long.MAX_VALUE);
+
+        // Then
+        assertNull(mediaStore.closestVariant(hash, 40));
+
+        // When
+        thumbnailService.generateVariants(hash);
+
+        // Then
+        assertEquals(48, mediaStore.closestVariant(hash, 40));
+        assertEquals(128, mediaStore.closestVariant(hash, 100));
+        assertNull(mediaStore.closestVariant(hash, 300));
+        assertNull(mediaStore.closestVariant(hash, null));
+    }
+
+    @Test
+    void requestVariants_ShouldNotQueueAgain_WhenPictureIsNotDecodable() throws IOException {
+        // Given
+        String hash = mediaStore.store(new ByteArrayInputStream("not an image".getBytes()), Long.MAX_VALUE);
+        thumbnailService.generateVariants(hash);
+
+        // When
+        boolean requested = thumbnailService.requestVariants(hash);
+
+        // Then
+        assertFalse(requested);
+        assertNull(mediaStore.closestVariant(hash, 40));
+    }
+
+    private byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", bytes);
+        return bytes.toByteArray();
+    }
+}
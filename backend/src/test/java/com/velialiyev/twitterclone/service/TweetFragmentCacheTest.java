@@ -0,0 +1,101 @@
+package com.velialiyev.twitterclone.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.velialiyev.twitterclone.dto.TweetResponseDto;
+import com.velialiyev.twitterclone.dto.UserDto;
+import com.velialiyev.twitterclone.entity.TweetEntity;
+import com.velialiyev.twitterclone.entity.TweetType;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TweetFragmentCacheTest {
+
+    private TweetFragmentCache cache;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TweetFragmentCache(2);
+        objectMapper = new ObjectMapper().registerModule(cache.module());
+    }
+
+    @Test
+    void version_ShouldChange_WhenCounterOrQuotedTweetChanges() {
+        // Given
+        UserEntity user = UserEntity.builder().firstName("John").lastName("Doe").username("johndoe").build();
+        TweetEntity quoted = TweetEntity.builder().id(1L).user(user).text("original").type(TweetType.TWEET)
+                .replyCounter(0).retweetCounter(0).likeCounter(0).build();
+        TweetEntity quote = TweetEntity.builder().id(2L).user(user).text("quote").type(TweetType.QUOTE).tweet(quoted)
+                .replyCounter(0).retweetCounter(0).likeCounter(0).build();
+        UserDto author = UserDto.builder().firstName("John").lastName("Doe").username("johndoe").build();
+        String before = TweetFragmentCache.version(quote, tweet -> author);
+
+        // When
+        quoted.setLikeCounter(1);
+
+        // Then
+        assertNotEquals(before, TweetFragmentCache.version(quote, tweet -> author));
+    }
+
+    @Test
+    void version_ShouldDiffer_WhenFieldsOnlyShiftBetweenEachOther() {
+        // Given
+        TweetEntity tweet = TweetEntity.builder().id(1L).text("hello").type(TweetType.TWEET)
+                .replyCounter(0).retweetCounter(0).likeCounter(0).build();
+        UserDto john = UserDto.builder().firstName("John").lastName("|5:Doe").username("johndoe").build();
+        UserDto johnDoe = UserDto.builder().firstName("John|5:").lastName("Doe").username("johndoe").build();
+
+        // Then
+        assertNotEquals(TweetFragmentCache.version(tweet, author -> john), TweetFragmentCache.version(tweet, author -> johnDoe));
+    }
+
+    @Test
+    void serialize_ShouldSpliceStoredJson_WhenCachedTweetIsWrittenAgain() throws Exception {
+        // Given
+        TweetResponseDto tweet = TweetResponseDto.builder().id(1L).username("johndoe").tweetText("hello").build();
+        cache.put(1L, "v1", tweet);
+        String first = objectMapper.writeValueAsString(List.of(tweet));
+
+        // When: the shared DTO is never modified in practice, which makes the splice observable here
+        tweet.setTweetText("changed");
+        String second = objectMapper.writeValueAsString(List.of(tweet, tweet));
+
+        // Then
+        assertTrue(first.contains("\"hello\""));
+        assertEquals("[" + first.substring(1, first.length() - 1) + "," + first.substring(1, first.length() - 1) + "]", second);
+    }
+
+    @Test
+    void serialize_ShouldWriteNormally_WhenTweetIsNotTheCachedInstance() throws Exception {
+        // Given
+        cache.put(1L, "v1", TweetResponseDto.builder().id(1L).tweetText("cached").build());
+
+        // When
+        String json = objectMapper.writeValueAsString(TweetResponseDto.builder().id(1L).tweetText("fresh").build());
+
+        // Then
+        assertTrue(json.contains("\"fresh\""));
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsed_WhenFull() {
+        // Given
+        TweetResponseDto first = TweetResponseDto.builder().id(1L).build();
+        cache.put(1L, "v1", first);
+        cache.put(2L, "v1", TweetResponseDto.builder().id(2L).build());
+        cache.get(1L, "v1");
+
+        // When
+        cache.put(3L, "v1", TweetResponseDto.builder().id(3L).build());
+
+        // Then
+        assertSame(first, cache.get(1L, "v1"));
+        assertNull(cache.get(2L, "v1"));
+        assertNull(cache.get(1L, "v2"));
+    }
+}
@@ -12,6 +12,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.util.Arrays;
@@ -43,6 +45,21 @@ class TweetServiceTest {
     @Mock
     private BookmarkRepository bookmarkRepository;
 
+    @Mock
+    private TweetFragmentCache tweetFragmentCache;
+
+    @Mock
+    private FeedVersions feedVersions;
+
+    @Mock
+    private RequestTracer requestTracer;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private CacheInvalidationLog cacheInvalidationLog;
+
     @InjectMocks
     private TweetService tweetService;
 
@@ -60,6 +77,12 @@ class TweetServiceTest {
                 .username("johndoe")
                 .email("john@example.com")
                 .build();
+        lenient().when(userProfileCache.findById(1L)).thenReturn(Optional.of(UserDto.builder()
+                .id(1L)
+                .firstName("John")
+                .lastName("Doe")
+                .username("johndoe")
+                .build()));
 
         tweetEntity = TweetEntity.builder()
                 .id(1L)
@@ -70,6 +93,7 @@ class TweetServiceTest {
                 .likeCounter(0)
                 .type(TweetType.TWEET)
                 .createdDate(Instant.now())
+                .replies(List.of())
                 .build();
 
         tweetDto = TweetDto.builder()
@@ -107,6 +131,8 @@ class TweetServiceTest {
 
         TweetEntity parentTweet = TweetEntity.builder()
                 .id(1L)
+                .user(userEntity)
+                .type(TweetType.TWEET)
                 .replyCounter(0)
                 .build();
 
@@ -155,6 +181,22 @@ class TweetServiceTest {
         verify(likeRepository, times(1)).save(any(LikeEntity.class));
     }
 
+    @Test
+    void like_ShouldBumpOnlyFeedsShowingTweet() {
+        // Given
+        when(authenticationService.getUserFromJwt()).thenReturn(userEntity);
+        when(tweetRepository.findById(1L)).thenReturn(Optional.of(tweetEntity));
+        when(likeRepository.findByUserAndTweet(userEntity, tweetEntity)).thenReturn(Optional.empty());
+
+        // When
+        tweetService.like(likeRetweetBookmarkDto);
+
+        // Then
+        verify(feedVersions).bump(FeedVersions.tab("likes", "johndoe"));
+        verify(feedVersions).bump(FeedVersions.GLOBAL, FeedVersions.tab("tweets", "johndoe"), FeedVersions.tweet(1L));
+        verify(feedVersions, never()).bumpAll();
+    }
+
     @Test
     void like_ShouldRemoveLike_WhenAlreadyLiked() {
         // Given
@@ -237,7 +279,8 @@ class TweetServiceTest {
         // Given
         String username = "johndoe";
         List<TweetEntity> tweets = Arrays.asList(tweetEntity);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(userEntity));
+        when(userProfileCache.findByUsername(username)).thenReturn(Optional.of(UserDto.builder().id(1L).username(username).build()));
+        when(userRepository.getReferenceById(1L)).thenReturn(userEntity);
         when(tweetRepository.findAllByUserAndType(userEntity, TweetType.TWEET)).thenReturn(Optional.of(tweets));
 
         // When
@@ -246,10 +289,22 @@ class TweetServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(userRepository, times(1)).findByUsername(username);
+        verify(userProfileCache, times(1)).findByUsername(username);
+        verify(userRepository, never()).findByUsername(any());
         verify(tweetRepository, times(1)).findAllByUserAndType(userEntity, TweetType.TWEET);
     }
 
+    @Test
+    void getTweetsByUsername_ShouldThrowNotFound_WhenUserDoesNotExist() {
+        // Given
+        when(userProfileCache.findByUsername("nobody")).thenReturn(Optional.empty());
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> tweetService.getTweetsByUsername("nobody"));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+        verify(tweetRepository, never()).findAllByUserAndType(any(), any());
+    }
+
     @Test
     void isLiked_ShouldReturnTrue_WhenTweetIsLiked() {
         // Given
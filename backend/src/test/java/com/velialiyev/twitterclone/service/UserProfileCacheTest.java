@@ -0,0 +1,114 @@
+package com.velialiyev.twitterclone.service;
+
+import com.velialiyev.twitterclone.dto.UserDto;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import com.velialiyev.twitterclone.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserProfileCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserProfileCache cache;
+    private UserEntity john;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new UserProfileCache(userRepository, 2, Duration.ofMinutes(10), Duration.ofMinutes(1), meterRegistry);
+        john = UserEntity.builder().id(1L).firstName("John").lastName("Doe").username("johndoe").bio("Hi").build();
+    }
+
+    @Test
+    void findByUsername_ShouldQueryOnce_WhenAskedTwice() {
+        // Given
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(john));
+
+        // When
+        UserDto first = cache.findByUsername("johndoe").orElseThrow();
+        UserDto second = cache.findByUsername("johndoe").orElseThrow();
+
+        // Then
+        assertSame(first, second);
+        assertEquals("Hi", second.getBio());
+        verify(userRepository, times(1)).findByUsername("johndoe");
+        assertEquals(1, meterRegistry.get("user.profile.cache.requests").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void findById_ShouldServeProfileLoadedByUsername() {
+        // Given
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(john));
+        cache.findByUsername("johndoe");
+
+        // When
+        UserDto profile = cache.findById(1L).orElseThrow();
+
+        // Then
+        assertEquals("johndoe", profile.getUsername());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void findByUsername_ShouldRememberUnknownUser_UntilNegativeTtlPasses() {
+        // Given
+        when(userRepository.findByUsername("nobody")).thenReturn(Optional.empty());
+        UserProfileCache expiring = new UserProfileCache(userRepository, 2, Duration.ofMinutes(10), Duration.ZERO, meterRegistry);
+
+        // When
+        cache.findByUsername("nobody");
+        boolean remembered = cache.findByUsername("nobody").isEmpty();
+        expiring.findByUsername("nobody");
+        expiring.findByUsername("nobody");
+
+        // Then: once by the cache that remembers, twice by the one whose negative entries expire at once
+        assertTrue(remembered);
+        verify(userRepository, times(3)).findByUsername("nobody");
+    }
+
+    @Test
+    void invalidate_ShouldReloadProfile() {
+        // Given
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(john));
+        cache.findByUsername("johndoe");
+        john.setBio("Changed");
+
+        // When
+        cache.invalidate("johndoe");
+
+        // Then
+        assertEquals("Changed", cache.findByUsername("johndoe").orElseThrow().getBio());
+        verify(userRepository, times(2)).findByUsername("johndoe");
+    }
+
+    @Test
+    void findById_ShouldLoadAgain_WhenProfileWasEvicted() {
+        // Given
+        when(userRepository.findById(1L)).thenReturn(Optional.of(john));
+        when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
+        cache.findById(1L);
+
+        // When: two more usernames push the least recently used profile out
+        cache.findByUsername("a");
+        cache.findByUsername("b");
+        cache.findById(1L);
+
+        // Then
+        assertEquals(2, cache.size());
+        verify(userRepository, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,132 @@
+package com.velialiyev.twitterclone.service;
+
+import com.velialiyev.twitterclone.dto.PictureDto;
+import com.velialiyev.twitterclone.entity.UserEntity;
+import com.velialiyev.twitterclone.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    private static final byte[] PNG_HEADER = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0};
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MediaStore mediaStore;
+
+    @Mock
+    private ThumbnailService thumbnailService;
+
+    @Mock
+    private PictureCache pictureCache;
+
+    @Mock
+    private FeedVersions feedVersions;
+
+    @Mock
+    private UserProfileCache userProfileCache;
+
+    @Mock
+    private CacheInvalidationLog cacheInvalidationLog;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userService = new UserService(userRepository, mediaStore, thumbnailService, pictureCache, meterRegistry, feedVersions, userProfileCache, cacheInvalidationLog);
+        ReflectionTestUtils.setField(userService, "maxUploadSize", DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    void savePicture_ShouldStreamToStoreAndUpdateRow_WhenPictureIsValid() throws Exception {
+        // Given
+        MockMultipartFile picture = new MockMultipartFile("profilePicture", "me.png", "image/png", PNG_HEADER);
+        when(mediaStore.store(any(InputStream.class), eq(DataSize.ofMegabytes(1).toBytes()))).thenReturn("abc123");
+        when(userRepository.updateProfilePicture(eq("johndoe"), eq("abc123"), any(Instant.class))).thenReturn(1);
+
+        // When
+        userService.savePicture(picture, "johndoe", "/profilePicture");
+
+        // Then
+        verify(thumbnailService, times(1)).requestVariants("abc123");
+        verify(userRepository, never()).save(any());
+        assertEquals(1, meterRegistry.get("media.upload").tag("outcome", "success").timer().count());
+        assertEquals(PNG_HEADER.length, meterRegistry.get("media.upload.size").summary().totalAmount());
+    }
+
+    @Test
+    void savePicture_ShouldRejectWithoutStoring_WhenContentIsNotAnImage() throws Exception {
+        // Given
+        MockMultipartFile picture = new MockMultipartFile("profilePicture", "me.png", "image/png", "not an image".getBytes());
+
+        // When & Then
+        assertThrows(ResponseStatusException.class, () -> userService.savePicture(picture, "johndoe", "/profilePicture"));
+        verify(mediaStore, never()).store(any(), anyLong());
+        assertEquals(1, meterRegistry.get("media.upload").tag("outcome", "rejected").timer().count());
+    }
+
+    @Test
+    void fetchPicture_ShouldServePendingOriginal_WhenVariantIsNotGeneratedYet() {
+        // Given
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(UserEntity.builder().username("johndoe").profilePictureHash("abc123").build()));
+        when(mediaStore.closestVariant("abc123", 40)).thenReturn(null);
+        when(mediaStore.variantSize(40)).thenReturn(48);
+        when(thumbnailService.requestVariants("abc123")).thenReturn(true);
+
+        // When
+        PictureDto picture = userService.fetchPicture("johndoe", "/profilePicture", 40);
+
+        // Then
+        assertEquals("abc123", picture.getBlob());
+        assertNull(picture.getSize());
+        assertTrue(picture.isPending());
+    }
+
+    @Test
+    void savePicture_ShouldThrow_WhenUserDoesNotExist() throws Exception {
+        // Given
+        MockMultipartFile picture = new MockMultipartFile("bannerPicture", "me.png", "image/png", PNG_HEADER);
+        when(mediaStore.store(any(InputStream.class), anyLong())).thenReturn("abc123");
+        when(userRepository.updateBannerPicture(eq("nobody"), eq("abc123"), any(Instant.class))).thenReturn(0);
+
+        // When & Then
+        assertThrows(NoSuchElementException.class, () -> userService.savePicture(picture, "nobody", "/bannerPicture"));
+        verify(thumbnailService, never()).requestVariants(any());
+    }
+
+    @Test
+    void pictureType_ShouldNameUploadedFormat_WhenPictureIsAnOriginal() {
+        // Given
+        byte[] webp = {'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'};
+
+        // When & Then
+        assertEquals(MediaType.IMAGE_PNG, userService.pictureType(new ByteArrayResource(PNG_HEADER)));
+        assertEquals(MediaType.valueOf("image/webp"), userService.pictureType(new ByteArrayResource(webp)));
+        assertEquals(MediaType.IMAGE_JPEG, userService.pictureType(new ByteArrayResource(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0})));
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, userService.pictureType(new ByteArrayResource("not an image".getBytes())));
+    }
+}